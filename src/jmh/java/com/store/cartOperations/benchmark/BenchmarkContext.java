@@ -0,0 +1,54 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.CartOperationsApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the application against a private in-memory H2 database for a benchmark trial, by default without a web server.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Starts the application context.
+     *
+     * @param properties Additional {@code key=value} properties, which take precedence over application.properties.
+     * @return The started context, to be closed when the trial ends.
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    /**
+     * Starts the application context, with a web server on a random port for {@link WebApplicationType#SERVLET}.
+     *
+     * @param webApplicationType The type of application to start.
+     * @param properties         Additional {@code key=value} properties, which take precedence over application.properties.
+     * @return The started context, to be closed when the trial ends.
+     */
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.hbm2ddl.import_files=/benchmark-import.sql",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.com.store.cartOperations=WARN",
+                "--logging.file.name=",
+                "--server.port=0"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(CartOperationsApplication.class)
+                .web(webApplicationType)
+                .run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,62 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Creates the users, products and carts used by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static RetailUser employee(ApplicationContext context) {
+        return context.getBean(RetailUserRepository.class).save(RetailUser.builder()
+                .name("Benchmark Employee")
+                .email("benchmark@tmail.com")
+                .isEmployee(true)
+                .registeredOn(new Date())
+                .build());
+    }
+
+    static List<Product> products(ApplicationContext context, int count) {
+        Category[] categories = Category.values();
+        return context.getBean(ProductRepository.class).saveAll(IntStream.range(0, count)
+                .mapToObj(i -> Product.builder()
+                        .name("Product " + i)
+                        .price(10.0 + i % 90)
+                        .availableQuantity(Integer.MAX_VALUE)
+                        .category(categories[i % categories.length])
+                        .build())
+                .toList());
+    }
+
+    static List<AddItemRequest> basket(List<Product> products) {
+        return products.stream().map(product -> {
+            AddItemRequest request = new AddItemRequest();
+            request.setProductId(product.getId());
+            request.setQuantity(1);
+            return request;
+        }).toList();
+    }
+
+    static Cart emptyCart(ApplicationContext context, RetailUser user) {
+        return context.getBean(CartRepository.class).save(Cart.builder()
+                .retailUser(user)
+                .items(new ArrayList<>())
+                .build());
+    }
+}
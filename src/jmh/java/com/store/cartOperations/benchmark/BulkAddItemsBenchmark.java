@@ -0,0 +1,74 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.service.CartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares filling an empty cart with one POST /cart/{cartId}/items call against one
+ * POST /cart/{cartId}/item call per line, at the service level, with and without JDBC batching of the item inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkAddItemsBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int lines;
+
+    @Param({"1", "50"})
+    int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private RetailUser user;
+    private List<AddItemRequest> basket;
+    private Integer cartId;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start("spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize);
+        cartService = context.getBean(CartService.class);
+        user = BenchmarkData.employee(context);
+        basket = BenchmarkData.basket(BenchmarkData.products(context, lines));
+    }
+
+    @Setup(Level.Invocation)
+    public void createCart() {
+        cartId = BenchmarkData.emptyCart(context, user).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Cart singleItemCalls() {
+        Cart cart = null;
+        for (AddItemRequest request : basket) {
+            cart = cartService.addItem(cartId, request.getProductId(), request.getQuantity());
+        }
+        return cart;
+    }
+
+    @Benchmark
+    public Cart bulkAddItems() {
+        return cartService.addItems(cartId, basket);
+    }
+}
@@ -0,0 +1,108 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.service.CartService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds items to a few shared carts from several threads, comparing the striped lock and the optimistic concurrency modes.
+ * Reports the throughput of additions and, as a secondary result, the aborted additions per second.
+ * The retries of the optimistic mode are printed after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class CartContentionBenchmark {
+
+    @Param({"striped", "optimistic"})
+    String mode;
+
+    @Param({"1", "8", "64"})
+    int carts;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private MeterRegistry meterRegistry;
+    private int[] cartIds;
+    private int[] productIds;
+    private double retriesAtStart;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start("cart.concurrency.mode=" + mode);
+        cartService = context.getBean(CartService.class);
+        meterRegistry = context.getBean(MeterRegistry.class);
+        RetailUser user = BenchmarkData.employee(context);
+        List<Product> products = BenchmarkData.products(context, 16);
+        productIds = products.stream().mapToInt(Product::getId).toArray();
+        cartIds = new int[carts];
+        for (int i = 0; i < carts; i++) {
+            cartIds[i] = BenchmarkData.emptyCart(context, user).getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void markRetries() {
+        retriesAtStart = retries();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportRetries() {
+        System.out.println("Retries in iteration: " + (long) (retries() - retriesAtStart));
+    }
+
+    @Benchmark
+    public void addItem(Outcome outcome) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            cartService.addItem(cartIds[random.nextInt(cartIds.length)], productIds[random.nextInt(productIds.length)], 1);
+        } catch (RuntimeException ex) {
+            outcome.aborts++;
+        }
+    }
+
+    private double retries() {
+        Counter counter = meterRegistry.find("cart.concurrency.retries").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    /**
+     * Additions given up by one benchmark thread, reported by JMH as a secondary result per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+
+        public long aborts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            aborts = 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.service.CartService;
+import com.store.cartOperations.service.DiscountService;
+import com.store.cartOperations.store.CartStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cart service operations and the discount service against the in-memory H2 database, on a cart
+ * filled with 1 to 10000 items. Every operation leaves the cart with the same lines, so the size stays constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CartServiceBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private DiscountService discountService;
+    private CartStore cartStore;
+    private TransactionTemplate transactionTemplate;
+    private Integer cartId;
+    private Integer productId;
+    private Integer itemId;
+    private int quantity;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start();
+        cartService = context.getBean(CartService.class);
+        discountService = context.getBean(DiscountService.class);
+        cartStore = context.getBean(CartStore.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        List<Product> products = BenchmarkData.products(context, cartSize);
+        cartId = BenchmarkData.emptyCart(context, BenchmarkData.employee(context)).getId();
+        Cart cart = cartService.addItems(cartId, BenchmarkData.basket(products));
+        productId = products.get(cartSize / 2).getId();
+        itemId = cart.findItemByProduct(productId).getId();
+        quantity = 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Cart addItem() {
+        return cartService.addItem(cartId, productId, 1);
+    }
+
+    @Benchmark
+    public Cart updateItemQuantity() {
+        quantity = quantity % 5 + 1;
+        return cartService.updateItemQuantity(cartId, itemId, quantity);
+    }
+
+    @Benchmark
+    public Cart removeAndAddItem() {
+        cartService.removeItem(cartId, itemId);
+        Cart cart = cartService.addItem(cartId, productId, 1);
+        itemId = cart.findItemByProduct(productId).getId();
+        return cart;
+    }
+
+    @Benchmark
+    public Cart applyItemDiscount() {
+        return transactionTemplate.execute(status -> {
+            Cart cart = cartStore.findById(cartId).orElseThrow();
+            return discountService.apply(cart.findItem(itemId));
+        });
+    }
+
+    @Benchmark
+    public Cart applyCartDiscount() {
+        return transactionTemplate.execute(status -> discountService.apply(cartStore.findById(cartId).orElseThrow()));
+    }
+}
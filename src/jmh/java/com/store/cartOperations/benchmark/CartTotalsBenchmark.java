@@ -0,0 +1,71 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the running total updates of the cart operations on boxed doubles, as the cart held them before,
+ * with the same updates on minor unit longs.
+ * Run with {@code -prof gc}; the minor unit variant should report no allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartTotalsBenchmark {
+
+    private static final double RATE = 0.05;
+
+    @Param({"10", "100", "1000"})
+    private int lines;
+
+    private double[] prices;
+    private long[] minorUnitPrices;
+    private int[] quantities;
+
+    @Setup
+    public void setUp() {
+        prices = new double[lines];
+        minorUnitPrices = new long[lines];
+        quantities = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            prices[i] = 9.99 + i % 50;
+            minorUnitPrices[i] = Money.of(prices[i]);
+            quantities[i] = 1 + i % 5;
+        }
+    }
+
+    @Benchmark
+    public Double boxedDoubles() {
+        Double totalCost = 0.0;
+        Double userDiscount = 0.0;
+        for (int i = 0; i < lines; i++) {
+            Double price = prices[i];
+            Integer quantity = quantities[i];
+            totalCost = totalCost + price * quantity;
+            Double discount = price * quantity * RATE;
+            userDiscount = userDiscount + discount;
+        }
+        return totalCost - userDiscount;
+    }
+
+    @Benchmark
+    public long minorUnits() {
+        long totalCost = 0;
+        long userDiscount = 0;
+        for (int i = 0; i < lines; i++) {
+            long cost = Money.times(minorUnitPrices[i], quantities[i]);
+            totalCost += cost;
+            userDiscount += Money.percentage(cost, RATE);
+        }
+        return totalCost - userDiscount;
+    }
+}
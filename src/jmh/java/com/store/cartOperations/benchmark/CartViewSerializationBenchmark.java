@@ -0,0 +1,88 @@
+package com.store.cartOperations.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.pojo.CartView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing the cart entity, as the cart API returned it before, with copying it into a {@link CartView}
+ * and serializing the view, for carts of 10 to 10000 lines. The response size of both is printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CartViewSerializationBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    int lines;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Cart cart;
+
+    @Setup
+    public void setUp() throws IOException {
+        RetailUser user = RetailUser.builder()
+                .id(1)
+                .name("Benchmark Employee")
+                .email("benchmark@tmail.com")
+                .isEmployee(true)
+                .registeredOn(new Date())
+                .build();
+        Category[] categories = Category.values();
+        cart = Cart.builder().id(1).retailUser(user).items(new ArrayList<>(lines)).build();
+        long totalCost = 0;
+        for (int i = 0; i < lines; i++) {
+            Product product = Product.builder()
+                    .id(i)
+                    .name("Product " + i)
+                    .description("Description of product " + i)
+                    .price(10.0 + i % 90)
+                    .availableQuantity(1000)
+                    .category(categories[i % categories.length])
+                    .build();
+            Item item = Item.builder()
+                    .id(i)
+                    .name(product.getName())
+                    .price(Money.of(product.getPrice()))
+                    .quantity(1 + i % 5)
+                    .category(product.getCategory())
+                    .product(product)
+                    .cart(cart)
+                    .build();
+            cart.addItem(item);
+            totalCost += Money.times(item.getPrice(), item.getQuantity());
+        }
+        cart.setTotalCost(totalCost);
+        System.out.printf("%n%d lines: entity %d bytes, view %d bytes%n", lines,
+                entity().length, view().length);
+    }
+
+    @Benchmark
+    public byte[] entity() throws IOException {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+
+    @Benchmark
+    public byte[] view() throws IOException {
+        return objectMapper.writeValueAsBytes(CartView.of(cart));
+    }
+}
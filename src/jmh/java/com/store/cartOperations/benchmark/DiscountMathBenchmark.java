@@ -0,0 +1,73 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.service.DiscountRuleTable;
+import com.store.cartOperations.service.DiscountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the discount math on its own, without the database: the item discounts of a whole cart from the rule table,
+ * and the recalculation of the running totals from the items, for carts of 1 to 10000 items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiscountMathBenchmark {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    int cartSize;
+
+    private DiscountRuleTable discountRuleTable;
+    private DiscountService discountService;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        discountRuleTable = new DiscountRuleTable(List.of("GROCERY", ""), 30.0, 10.0, 5.0, 2);
+        discountService = new DiscountService();
+        Category[] categories = Category.values();
+        List<Item> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            items.add(Item.builder()
+                    .id(i)
+                    .price(Money.of(10.0 + i % 90))
+                    .quantity(1 + i % 5)
+                    .category(categories[i % categories.length])
+                    .product(Product.builder().id(i).build())
+                    .build());
+        }
+        cart = Cart.builder().items(items).build();
+    }
+
+    @Benchmark
+    public long itemDiscounts() {
+        long userDiscount = 0;
+        for (Item item : cart.getItems()) {
+            double rate = discountRuleTable.rate(UserTier.AFFILIATED, item.getCategory());
+            userDiscount += Money.percentage(Money.times(item.getPrice(), item.getQuantity()), rate);
+        }
+        return userDiscount;
+    }
+
+    @Benchmark
+    public long recalculateTotals() {
+        discountService.recalculate(cart);
+        return cart.getTotalCost();
+    }
+}
@@ -0,0 +1,75 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.service.DiscountRuleTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per item discount calculation of the compiled rule table with the previous implementation,
+ * which looked the category up in a list of names and built the loyalty cutoff for every item.
+ * Run with {@code -prof gc} to compare allocation per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DiscountRuleBenchmark {
+
+    private static final List<String> NON_DISCOUNTED = List.of("GROCERY", "");
+    private static final double EMPLOYEE = 30.0;
+    private static final double AFFILIATED = 10.0;
+    private static final double LOYALTY = 5.0;
+    private static final int LOYALTY_PERIOD = 2;
+
+    private DiscountRuleTable discountRuleTable;
+    private RetailUser loyalUser;
+    private Category category;
+    private double price;
+    private int quantity;
+
+    @Setup
+    public void setUp() {
+        discountRuleTable = new DiscountRuleTable(NON_DISCOUNTED, EMPLOYEE, AFFILIATED, LOYALTY, LOYALTY_PERIOD);
+        loyalUser = RetailUser.builder()
+                .registeredOn(Date.from(LocalDate.now().minusYears(3).atStartOfDay(ZoneId.systemDefault()).toInstant()))
+                .build();
+        category = Category.ELECTRONICS;
+        price = 150.0;
+        quantity = 5;
+    }
+
+    @Benchmark
+    public long ruleTable() {
+        return Money.percentage(Money.times(Money.of(price), quantity), discountRuleTable.rate(discountRuleTable.tierOf(loyalUser), category));
+    }
+
+    @Benchmark
+    public Double listLookup() {
+        Double discount = 0.0;
+        if (!NON_DISCOUNTED.contains(category.name())) {
+            Date loyaltyPeriodStartBefore = Date.from(LocalDate.now().minusYears(LOYALTY_PERIOD).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            Double itemTotalCost = price * quantity;
+            if (loyalUser.isEmployee()) {
+                discount += (itemTotalCost * EMPLOYEE / 100);
+            } else if (loyalUser.isAffiliated()) {
+                discount += (itemTotalCost * AFFILIATED / 100);
+            } else if (loyalUser.getRegisteredOn().before(loyaltyPeriodStartBefore)) {
+                discount += (itemTotalCost * LOYALTY / 100);
+            }
+        }
+        return discount;
+    }
+}
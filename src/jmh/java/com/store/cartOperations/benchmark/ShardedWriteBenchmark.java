@@ -0,0 +1,82 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.service.CartService;
+import com.store.cartOperations.shard.CartRebalancer;
+import com.store.cartOperations.shard.ReferenceDataReplicator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds items to many carts from 16 threads with the carts spread over 1, 2 or 4 in-memory databases, to show how the
+ * write throughput grows with the number of shards. Every shard has its own pool of {@code cart.shards.maximum-pool-size}
+ * connections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class ShardedWriteBenchmark {
+
+    private static final int CARTS = 1024;
+
+    @Param({"1", "2", "4"})
+    int shards;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private int[] cartIds;
+    private int[] productIds;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        List<String> urls = new ArrayList<>();
+        for (int shard = 1; shard < shards; shard++) {
+            urls.add("jdbc:h2:mem:benchmark-shard-" + shard + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        }
+        context = urls.isEmpty()
+                ? BenchmarkContext.start()
+                : BenchmarkContext.start("cart.shards.urls=" + String.join(",", urls), "cart.shards.maximum-pool-size=8");
+        cartService = context.getBean(CartService.class);
+        RetailUser user = BenchmarkData.employee(context);
+        List<Product> products = BenchmarkData.products(context, 64);
+        productIds = products.stream().mapToInt(Product::getId).toArray();
+        cartIds = new int[CARTS];
+        for (int i = 0; i < CARTS; i++) {
+            cartIds[i] = BenchmarkData.emptyCart(context, user).getId();
+        }
+        if (!urls.isEmpty()) {
+            // The data above is written to the first shard, copy the products and users and move the carts.
+            context.getBean(ReferenceDataReplicator.class).replicate();
+            context.getBean(CartRebalancer.class).rebalance();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public void addItem() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        cartService.addItem(cartIds[random.nextInt(CARTS)], productIds[random.nextInt(productIds.length)], 1);
+    }
+}
@@ -0,0 +1,128 @@
+package com.store.cartOperations.benchmark;
+
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cart API served on Tomcat platform threads with the same API served on virtual threads.
+ * Every invocation sends one request from each of 1000 or 10000 concurrent clients, alternating between adding
+ * an item to and reading one of 256 carts, and waits for all responses. Requests which failed are reported as
+ * a secondary result.
+ * Clients beyond the connection limits of the OS are refused, so raise the open file limit ({@code ulimit -n})
+ * before running the 10000 client case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class VirtualThreadsBenchmark {
+
+    private static final int CARTS = 256;
+
+    @Param({"false", "true"})
+    boolean virtualThreads;
+
+    @Param({"1000", "10000"})
+    int clients;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient httpClient;
+    private List<HttpRequest> requests;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = BenchmarkContext.start(WebApplicationType.SERVLET,
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.max-connections=" + (clients + 1000),
+                "server.tomcat.accept-count=" + clients);
+        RetailUser user = BenchmarkData.employee(context);
+        List<Product> products = BenchmarkData.products(context, 16);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        int[] cartIds = new int[CARTS];
+        for (int i = 0; i < CARTS; i++) {
+            cartIds[i] = BenchmarkData.emptyCart(context, user).getId();
+        }
+        requests = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            URI cart = URI.create("http://localhost:" + port + "/cart/" + cartIds[i % CARTS]);
+            requests.add(i % 2 == 0
+                    ? HttpRequest.newBuilder(URI.create(cart + "/item"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\":" + products.get(i % products.size()).getId() + ",\"quantity\":1}"))
+                    .build()
+                    : HttpRequest.newBuilder(cart).GET().build());
+        }
+        // The clients always run on virtual threads, so only the server side differs between the two cases.
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(30))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        httpClient.close();
+        clientExecutor.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void concurrentClients(Outcome outcome) {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        for (HttpRequest request : requests) {
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            try {
+                if (response.join().statusCode() != 200) {
+                    outcome.failures++;
+                }
+            } catch (RuntimeException ex) {
+                outcome.failures++;
+            }
+        }
+    }
+
+    /**
+     * Failed requests of an invocation, reported by JMH as a secondary result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+
+        public long failures;
+    }
+}
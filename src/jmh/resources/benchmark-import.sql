@@ -0,0 +1 @@
+-- Benchmarks create their own data, the sample rows of import.sql would clash with generated ids.
@@ -0,0 +1,277 @@
+package com.store.cartOperations.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Replays a mix of cart requests against a running instance and reports throughput and latency percentiles per endpoint.
+ * Each client is a virtual thread sending one request at a time. Without {@code --rate} the clients send as fast as
+ * the server answers; with {@code --rate} the requests are paced and latency is measured from the time a request
+ * was due, so a stalled server shows up in the percentiles instead of just lowering the request rate.
+ *
+ * <pre>
+ * gradlew loadTest -PloadTestArgs="--url=http://localhost:9388 --clients=200 --duration=60 --carts=1-100000 --products=1-1000000"
+ * </pre>
+ * Options, with their defaults:
+ * <ul>
+ *     <li>{@code --url=http://localhost:9388} base url of the instance.</li>
+ *     <li>{@code --clients=100} number of concurrent clients.</li>
+ *     <li>{@code --warmup=10} and {@code --duration=60} seconds of warm up, which is not reported, and of measurement.</li>
+ *     <li>{@code --rate=0} total requests per second over all clients, 0 for as fast as possible.</li>
+ *     <li>{@code --carts=1-4} and {@code --products=1-5} id ranges to pick carts and products from.</li>
+ *     <li>{@code --mix=get:60,add:25,update:10,remove:5} relative weights of the endpoints.</li>
+ *     <li>{@code --out=} optional CSV file for the report.</li>
+ * </ul>
+ */
+public final class CartLoadDriver {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    enum Endpoint {
+        GET("GET /cart/{cartId}"),
+        ADD("POST /cart/{cartId}/item"),
+        UPDATE("PUT /cart/{cartId}/item/{itemId}"),
+        REMOVE("DELETE /cart/{cartId}/item/{itemId}");
+
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+    }
+
+    private final String baseUrl;
+    private final int clients;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final double rate;
+    private final int[] carts;
+    private final int[] products;
+    private final Endpoint[] mix;
+    private final String out;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private final ConcurrentMap<Integer, int[]> knownItems = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    private CartLoadDriver(Map<String, String> options) {
+        baseUrl = options.getOrDefault("url", "http://localhost:9388");
+        clients = Integer.parseInt(options.getOrDefault("clients", "100"));
+        warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "10")));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "60")));
+        rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        carts = range(options.getOrDefault("carts", "1-4"));
+        products = range(options.getOrDefault("products", "1-5"));
+        mix = mix(options.getOrDefault("mix", "get:60,add:25,update:10,remove:5"));
+        out = options.get("out");
+        httpClient = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder(MAX_LATENCY_NANOS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "true");
+        }
+        new CartLoadDriver(options).run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("Running %d clients against %s, %ds warm up and %ds measured%n", clients, baseUrl,
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos), TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(this::client);
+            }
+            TimeUnit.NANOSECONDS.sleep(warmupNanos);
+            recorders.values().forEach(Recorder::reset);
+            errors.values().forEach(LongAdder::reset);
+            measuring = true;
+            long start = System.nanoTime();
+            TimeUnit.NANOSECONDS.sleep(durationNanos);
+            Map<Endpoint, Histogram> histograms = new EnumMap<>(Endpoint.class);
+            recorders.forEach((endpoint, recorder) -> histograms.put(endpoint, recorder.getIntervalHistogram()));
+            long elapsed = System.nanoTime() - start;
+            running = false;
+            report(histograms, elapsed);
+        }
+    }
+
+    private void client() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * clients / rate) : 0;
+        long due = System.nanoTime();
+        while (running) {
+            Endpoint endpoint = mix[random.nextInt(mix.length)];
+            int cartId = carts[random.nextInt(carts.length)];
+            if (intervalNanos > 0) {
+                due += intervalNanos;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    sleep(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+            HttpRequest request = request(endpoint, cartId, random);
+            if (request == null) {
+                // No item of the cart is known yet, read the cart first.
+                endpoint = Endpoint.GET;
+                request = request(endpoint, cartId, random);
+            }
+            send(endpoint, cartId, request, due);
+        }
+    }
+
+    private HttpRequest request(Endpoint endpoint, int cartId, ThreadLocalRandom random) {
+        String cart = baseUrl + "/cart/" + cartId;
+        return switch (endpoint) {
+            case GET -> HttpRequest.newBuilder(URI.create(cart)).GET().build();
+            case ADD -> HttpRequest.newBuilder(URI.create(cart + "/item"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\":" + products[random.nextInt(products.length)]
+                            + ",\"quantity\":" + (1 + random.nextInt(3)) + "}"))
+                    .build();
+            case UPDATE, REMOVE -> {
+                int[] items = knownItems.get(cartId);
+                if (items == null || items.length == 0) {
+                    yield null;
+                }
+                String item = cart + "/item/" + items[random.nextInt(items.length)];
+                yield endpoint == Endpoint.UPDATE
+                        ? HttpRequest.newBuilder(URI.create(item + "?quantity=" + (1 + random.nextInt(5))))
+                        .PUT(HttpRequest.BodyPublishers.noBody()).build()
+                        : HttpRequest.newBuilder(URI.create(item)).DELETE().build();
+            }
+        };
+    }
+
+    private void send(Endpoint endpoint, int cartId, HttpRequest request, long due) {
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            long latency = System.nanoTime() - due;
+            if (measuring) {
+                recorders.get(endpoint).recordValue(Math.min(latency, MAX_LATENCY_NANOS));
+            }
+            if (response.statusCode() == 200) {
+                rememberItems(cartId, response.body());
+            } else {
+                knownItems.remove(cartId);
+                errors.get(endpoint).increment();
+            }
+        } catch (IOException ex) {
+            errors.get(endpoint).increment();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void rememberItems(int cartId, byte[] body) throws IOException {
+        JsonNode items = objectMapper.readTree(body).path("items");
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = items.get(i).path("id").asInt();
+        }
+        knownItems.put(cartId, ids);
+    }
+
+    private void report(Map<Endpoint, Histogram> histograms, long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        List<String> lines = new ArrayList<>();
+        lines.add("endpoint,requests,errors,throughput_per_s,p50_ms,p99_ms,p999_ms,max_ms");
+        System.out.printf("%n%-38s %10s %8s %12s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        histograms.forEach((endpoint, histogram) -> {
+            long requests = histogram.getTotalCount();
+            long failed = errors.get(endpoint).sum();
+            double p50 = millis(histogram.getValueAtPercentile(50));
+            double p99 = millis(histogram.getValueAtPercentile(99));
+            double p999 = millis(histogram.getValueAtPercentile(99.9));
+            double max = millis(histogram.getMaxValue());
+            System.out.printf("%-38s %10d %8d %12.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.label, requests, failed, requests / seconds, p50, p99, p999, max);
+            lines.add(String.format(Locale.ROOT, "%s,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f",
+                    endpoint.label, requests, failed, requests / seconds, p50, p99, p999, max));
+        });
+        if (out != null) {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(out)))) {
+                lines.forEach(writer::println);
+            }
+            System.out.println("Report written to " + out);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int[] range(String range) {
+        String[] bounds = range.split("-", 2);
+        int from = Integer.parseInt(bounds[0].trim());
+        int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+        int[] ids = new int[to - from + 1];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    /**
+     * Expands the weights into a table with one entry per weight unit, so an endpoint is picked with one random index.
+     */
+    private static Endpoint[] mix(String mix) {
+        List<Endpoint> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.split(":", 2);
+            Endpoint endpoint = Endpoint.valueOf(weight[0].trim().toUpperCase(Locale.ROOT));
+            for (int i = Integer.parseInt(weight[1].trim()); i > 0; i--) {
+                table.add(endpoint);
+            }
+        }
+        return table.toArray(Endpoint[]::new);
+    }
+}
@@ -0,0 +1,75 @@
+package com.store.cartOperations.cache;
+
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Second-level cache of the rarely changing entities read by every cart operation, {@link Product} and {@link RetailUser}.
+ * Each entity has its own region in a local Ehcache, bounded to {@code entity-cache.<region>.max-entries} entries
+ * which expire {@code entity-cache.<region>.time-to-live-seconds} after they were cached. The cache manager is handed
+ * to Hibernate instead of being looked up by Hibernate, so the regions are configured with these properties.
+ * Changes made through JPA update the cache; code changing the tables by other means evicts the changed entities.
+ * Hits, misses, puts and evictions of every region are published as the {@code cache.*} metrics, tagged with the region.
+ */
+@Configuration
+@Slf4j
+public class EntityCacheConfiguration {
+
+    private static final List<String> REGIONS = List.of(Product.CACHE_REGION, RetailUser.CACHE_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(@Value("${entity-cache.product.max-entries:10000}") long productMaxEntries,
+                                           @Value("${entity-cache.product.time-to-live-seconds:600}") long productTimeToLive,
+                                           @Value("${entity-cache.retail-user.max-entries:10000}") long userMaxEntries,
+                                           @Value("${entity-cache.retail-user.time-to-live-seconds:300}") long userTimeToLive) {
+        org.ehcache.config.Configuration configuration = ConfigurationBuilder.newConfigurationBuilder()
+                .withCache(Product.CACHE_REGION, region(productMaxEntries, productTimeToLive))
+                .withCache(RetailUser.CACHE_REGION, region(userMaxEntries, userTimeToLive))
+                .build();
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        // Every application context gets a cache manager of its own, test contexts in one JVM must not share the entries.
+        CacheManager cacheManager = provider.getCacheManager(URI.create("urn:cartOperations:entity-cache:" + UUID.randomUUID()),
+                configuration);
+        REGIONS.forEach(region -> cacheManager.enableStatistics(region, true));
+        log.info("Entity cache: {} product entries for {}s, {} user entries for {}s", productMaxEntries, productTimeToLive,
+                userMaxEntries, userTimeToLive);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheProperties(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+
+    @Bean
+    public MeterBinder entityCacheMetrics(CacheManager entityCacheManager) {
+        return registry -> REGIONS.forEach(region -> JCacheMetrics.monitor(registry, entityCacheManager.getCache(region)));
+    }
+
+    private static CacheConfiguration<Object, Object> region(long maxEntries, long timeToLiveSeconds) {
+        return CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(maxEntries))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(timeToLiveSeconds)))
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.store.cartOperations.catalog;
+
+import lombok.Value;
+
+/**
+ * Outcome of a catalog import.
+ */
+@Value
+public class CatalogImportResult {
+
+    /**
+     * Rows read from the file, without the header and blank lines.
+     */
+    long read;
+    long imported;
+    /**
+     * Rows which could not be parsed or failed the constraints of the product.
+     */
+    long rejected;
+    /**
+     * Valid rows of batches which could not be written.
+     */
+    long failed;
+    long elapsedMillis;
+
+    public double rowsPerSecond() {
+        return elapsedMillis > 0 ? read * 1000.0 / elapsedMillis : read;
+    }
+}
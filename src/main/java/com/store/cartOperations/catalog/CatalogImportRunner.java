@@ -0,0 +1,31 @@
+package com.store.cartOperations.catalog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Imports the catalog file given by {@code catalog.import.file} at startup, see {@link CatalogImportService}.
+ */
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "catalog.import.file")
+public class CatalogImportRunner implements ApplicationRunner {
+
+    private final CatalogImportService catalogImportService;
+
+    @Value("${catalog.import.file}")
+    private String file;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        catalogImportService.importCatalog(Path.of(file));
+    }
+}
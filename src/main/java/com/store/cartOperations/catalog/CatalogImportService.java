@@ -0,0 +1,204 @@
+package com.store.cartOperations.catalog;
+
+import com.store.cartOperations.domain.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Imports a product catalog file of any size in bounded memory.
+ * The calling thread streams the file and cuts it into chunks of {@code catalog.import.batch-size} rows; a pool of
+ * {@code catalog.import.parallelism} threads parses and validates the chunks and writes each one in its own transaction,
+ * clearing the persistence context afterwards. The pool takes at most two chunks per thread in advance, beyond that
+ * the reading thread parses a chunk itself, so no more than a few chunks are ever held in memory.
+ * Invalid rows are counted and skipped, the first of them are logged with their line number. Progress and throughput
+ * are logged every {@code catalog.import.progress-interval-ms}.
+ */
+@Service
+@Slf4j
+public class CatalogImportService {
+
+    private static final int LOGGED_REJECTIONS = 100;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int batchSize;
+    private final int parallelism;
+    private final long progressIntervalNanos;
+
+    public CatalogImportService(EntityManager entityManager, PlatformTransactionManager transactionManager, Validator validator,
+                                @Value("${catalog.import.batch-size:1000}") int batchSize,
+                                @Value("${catalog.import.parallelism:4}") int parallelism,
+                                @Value("${catalog.import.progress-interval-ms:5000}") long progressIntervalMillis) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.progressIntervalNanos = TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis);
+    }
+
+    /**
+     * This method imports all products of the given catalog file, see {@link CatalogRowParser#forFile} for the formats.
+     * It returns once every row is written or rejected.
+     *
+     * @param file The catalog file.
+     * @return The numbers of read, imported, rejected and failed rows.
+     * @throws RuntimeException if the file cannot be read or its format is not supported.
+     */
+    public CatalogImportResult importCatalog(Path file) {
+        log.info("Importing catalog {} in batches of {} with {} threads", file, batchSize, parallelism);
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), threadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            CatalogRowParser parser = CatalogRowParser.forFile(file, reader);
+            long lineNumber = parser.headerLines();
+            long nextReport = start + progressIntervalNanos;
+            List<String> chunk = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    progress.read.increment();
+                }
+                chunk.add(line);
+                if (chunk.size() == batchSize) {
+                    submit(executor, parser, chunk, lineNumber, progress);
+                    chunk = new ArrayList<>(batchSize);
+                }
+                if (System.nanoTime() >= nextReport) {
+                    report(progress, start);
+                    nextReport = System.nanoTime() + progressIntervalNanos;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(executor, parser, chunk, lineNumber, progress);
+            }
+        } catch (IOException ex) {
+            log.error("Cannot read catalog {}", file, ex);
+            throw new RuntimeException("Cannot read catalog " + file);
+        } finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        CatalogImportResult result = new CatalogImportResult(progress.read.sum(), progress.imported.sum(),
+                progress.rejected.sum(), progress.failed.sum(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Imported {} of {} catalog rows in {}ms, {} rejected, {} failed, {} rows/s", result.getImported(),
+                result.getRead(), result.getElapsedMillis(), result.getRejected(), result.getFailed(),
+                Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    private void submit(ThreadPoolExecutor executor, CatalogRowParser parser, List<String> chunk, long lastLine,
+                        Progress progress) {
+        executor.execute(() -> importChunk(parser, chunk, lastLine, progress));
+    }
+
+    /**
+     * Parses and validates the rows of a chunk, skipping blank lines, and writes the valid ones in one transaction.
+     */
+    private void importChunk(CatalogRowParser parser, List<String> chunk, long lastLine, Progress progress) {
+        long firstLine = lastLine - chunk.size() + 1;
+        List<Product> products = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i).isBlank()) {
+                continue;
+            }
+            try {
+                Product product = parser.parse(chunk.get(i));
+                product.setId(null);
+                Set<ConstraintViolation<Product>> violations = validator.validate(product);
+                if (violations.isEmpty()) {
+                    products.add(product);
+                } else {
+                    reject(progress, firstLine + i, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .collect(Collectors.joining(", ")));
+                }
+            } catch (RuntimeException ex) {
+                reject(progress, firstLine + i, ex.getMessage());
+            }
+        }
+        if (products.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Product product : products) {
+                    entityManager.persist(product);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            progress.imported.add(products.size());
+        } catch (RuntimeException ex) {
+            progress.failed.add(products.size());
+            log.error("Failed to write catalog rows {} to {}", firstLine, lastLine, ex);
+        }
+    }
+
+    private void reject(Progress progress, long line, String reason) {
+        progress.rejected.increment();
+        if (progress.rejected.sum() <= LOGGED_REJECTIONS) {
+            log.warn("Rejected catalog row at line {}: {}", line, reason);
+        }
+    }
+
+    private void report(Progress progress, long start) {
+        long elapsedNanos = System.nanoTime() - start;
+        long read = progress.read.sum();
+        log.info("Catalog import: {} rows read, {} imported, {} rejected, {} rows/s", read, progress.imported.sum(),
+                progress.rejected.sum(), Math.round(read / (elapsedNanos / 1e9)));
+    }
+
+    private static void awaitTermination(ThreadPoolExecutor executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Waiting for {} catalog chunks to be written", executor.getQueue().size() + executor.getActiveCount());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            throw new RuntimeException("Catalog import was interrupted");
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "catalog-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Progress {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+}
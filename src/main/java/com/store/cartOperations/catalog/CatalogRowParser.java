@@ -0,0 +1,46 @@
+package com.store.cartOperations.catalog;
+
+import com.store.cartOperations.domain.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Parses one line of a catalog file into a product. Implementations are stateless once created, so one parser is
+ * shared by all parsing threads.
+ */
+interface CatalogRowParser {
+
+    /**
+     * Parses a line into a product which still has to be validated.
+     *
+     * @throws RuntimeException if the line is malformed.
+     */
+    Product parse(String line);
+
+    /**
+     * Returns the parser for the format of the file, chosen by its extension: {@code .csv} for CSV with a header line,
+     * {@code .ndjson} or {@code .jsonl} for one JSON product per line. The header of a CSV file is read from the reader.
+     */
+    static CatalogRowParser forFile(Path file, BufferedReader reader) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new RuntimeException("Catalog file " + file + " is empty");
+            }
+            return new CsvRowParser(header);
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new NdjsonRowParser();
+        }
+        throw new RuntimeException("Unsupported catalog format of " + file + ", expected .csv, .ndjson or .jsonl");
+    }
+
+    /**
+     * Returns the number of lines before the first row.
+     */
+    int headerLines();
+}
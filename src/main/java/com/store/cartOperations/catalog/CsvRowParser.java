@@ -0,0 +1,111 @@
+package com.store.cartOperations.catalog;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses CSV rows whose columns are named by the header line, in any order: {@code name}, {@code category} and
+ * {@code price} are required, {@code description}, {@code availableQuantity} and {@code isEmployeeDiscountEnabled}
+ * are optional. Fields may be quoted with double quotes, which allows commas in a field; a quoted field cannot span lines.
+ */
+final class CsvRowParser implements CatalogRowParser {
+
+    private final int name;
+    private final int description;
+    private final int category;
+    private final int price;
+    private final int availableQuantity;
+    private final int employeeDiscount;
+
+    CsvRowParser(String header) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        name = required(columns, "name");
+        category = required(columns, "category");
+        price = required(columns, "price");
+        description = columns.getOrDefault("description", -1);
+        availableQuantity = columns.getOrDefault("availablequantity", -1);
+        employeeDiscount = columns.getOrDefault("isemployeediscountenabled", -1);
+    }
+
+    @Override
+    public Product parse(String line) {
+        List<String> fields = split(line);
+        String categoryName = field(fields, category);
+        String priceValue = field(fields, price);
+        String quantityValue = field(fields, availableQuantity);
+        String employeeDiscountValue = field(fields, employeeDiscount);
+        return Product.builder()
+                .name(field(fields, name))
+                .description(field(fields, description))
+                .category(categoryName != null ? Category.valueOf(categoryName.toUpperCase(Locale.ROOT)) : null)
+                .price(priceValue != null ? Double.valueOf(priceValue) : null)
+                .availableQuantity(quantityValue != null ? Integer.valueOf(quantityValue) : 0)
+                .isEmployeeDiscountEnabled(Boolean.parseBoolean(employeeDiscountValue))
+                .build();
+    }
+
+    @Override
+    public int headerLines() {
+        return 1;
+    }
+
+    private static int required(Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null) {
+            throw new RuntimeException("Catalog header misses the column " + column);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the trimmed field at the index, or null if the row has no such field or it is empty.
+     */
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new RuntimeException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
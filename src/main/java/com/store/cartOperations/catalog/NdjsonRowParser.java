@@ -0,0 +1,35 @@
+package com.store.cartOperations.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.store.cartOperations.domain.Product;
+
+/**
+ * Parses rows holding one JSON product each, with the property names of {@link Product}. Unknown properties are ignored
+ * and categories are matched ignoring case.
+ */
+final class NdjsonRowParser implements CatalogRowParser {
+
+    private final ObjectReader reader = JsonMapper.builder()
+            .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build()
+            .readerFor(Product.class);
+
+    @Override
+    public Product parse(String line) {
+        try {
+            return reader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            throw new RuntimeException("Malformed JSON: " + ex.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public int headerLines() {
+        return 0;
+    }
+}
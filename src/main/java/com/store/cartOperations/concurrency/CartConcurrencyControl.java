@@ -0,0 +1,21 @@
+package com.store.cartOperations.concurrency;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs cart mutations in their own transaction and guards them against concurrent mutations of the same cart,
+ * so two requests changing one cart cannot both start from the same running totals and lose an update.
+ * The implementation is selected with {@code cart.concurrency.mode}.
+ */
+public interface CartConcurrencyControl {
+
+    /**
+     * Runs the mutation of the given cart in a transaction and returns its result.
+     *
+     * @param cartId   The id of the cart which is mutated.
+     * @param mutation The mutation, which must load the cart itself so it can be run again.
+     * @return The result of the mutation.
+     * @throws RuntimeException if the mutation could not be run because of concurrent mutations of the cart.
+     */
+    <T> T execute(Integer cartId, Supplier<T> mutation);
+}
@@ -0,0 +1,83 @@
+package com.store.cartOperations.concurrency;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of cart transactions running at the same time at the size of the connection pool.
+ * With virtual threads there is no request thread pool limiting the concurrency any more, so without the cap thousands
+ * of requests would queue inside the pool and the JDBC driver, where a waiting virtual thread may stay pinned to its
+ * carrier. Waiting for a permit unmounts the virtual thread instead.
+ * The cap is only applied when {@code spring.threads.virtual.enabled} is set, unless {@code cart.concurrency.database-permits}
+ * sets it explicitly.
+ */
+@Component
+@Slf4j
+public class DatabasePermits {
+
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final Semaphore permits;
+    private final long permitTimeoutMillis;
+
+    public DatabasePermits(DataSource dataSource, MeterRegistry meterRegistry,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           @Value("${cart.concurrency.database-permits:0}") int configuredPermits,
+                           @Value("${cart.concurrency.permit-timeout-ms:5000}") long permitTimeoutMillis) {
+        int size = configuredPermits > 0 ? configuredPermits : virtualThreads ? poolSize(dataSource) : 0;
+        this.permits = size > 0 ? new Semaphore(size, true) : null;
+        this.permitTimeoutMillis = permitTimeoutMillis;
+        if (permits != null) {
+            log.info("Limiting concurrent cart transactions to {}", size);
+            Gauge.builder("cart.concurrency.database.permits.waiting", permits, Semaphore::getQueueLength)
+                    .description("Cart transactions waiting for a database permit")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs the work while holding a permit, or straight away if the cap is not enabled.
+     *
+     * @throws RuntimeException if no permit became free within {@code cart.concurrency.permit-timeout-ms}.
+     */
+    public <T> T call(Supplier<T> work) {
+        if (permits == null) {
+            return work.get();
+        }
+        try {
+            if (!permits.tryAcquire(permitTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.error("Timed out waiting for a database permit");
+                throw new RuntimeException("Server is busy, please try again later");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a database permit");
+        }
+        try {
+            return work.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException ex) {
+            log.warn("Could not read the connection pool size, using {}", DEFAULT_POOL_SIZE, ex);
+        }
+        return DEFAULT_POOL_SIZE;
+    }
+}
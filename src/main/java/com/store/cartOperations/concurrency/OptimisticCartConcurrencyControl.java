@@ -0,0 +1,87 @@
+package com.store.cartOperations.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Lets mutations of a cart run concurrently and relies on the version of the cart to detect conflicts when they commit.
+ * A mutation which lost the race is run again in a new transaction, up to {@code cart.concurrency.max-attempts} times,
+ * with a short random back off between the attempts.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.concurrency.mode", havingValue = "optimistic")
+public class OptimisticCartConcurrencyControl implements CartConcurrencyControl {
+
+    private final TransactionTemplate transactionTemplate;
+    private final DatabasePermits databasePermits;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final Counter retryCounter;
+    private final Counter abortCounter;
+
+    public OptimisticCartConcurrencyControl(PlatformTransactionManager transactionManager, DatabasePermits databasePermits,
+                                            MeterRegistry meterRegistry,
+                                            @Value("${cart.concurrency.max-attempts:3}") int maxAttempts,
+                                            @Value("${cart.concurrency.retry-backoff-ms:5}") long retryBackoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.databasePermits = databasePermits;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.retryCounter = Counter.builder("cart.concurrency.retries")
+                .description("Cart mutations run again after a concurrent mutation of the same cart")
+                .tag("mode", "optimistic")
+                .register(meterRegistry);
+        this.abortCounter = Counter.builder("cart.concurrency.aborts")
+                .description("Cart mutations given up because of concurrent mutations of the same cart")
+                .tag("mode", "optimistic")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T execute(Integer cartId, Supplier<T> mutation) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // The conflict only shows when the caller's transaction commits, so the mutation cannot be run again here.
+            return databasePermits.call(() -> transactionTemplate.execute(status -> mutation.get()));
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return databasePermits.call(() -> transactionTemplate.execute(status -> mutation.get()));
+            } catch (OptimisticLockingFailureException | OptimisticLockException ex) {
+                if (attempt >= maxAttempts) {
+                    abortCounter.increment();
+                    log.error("Cart with id: {} was changed concurrently, giving up after {} attempts", cartId, attempt);
+                    throw new RuntimeException("Cart was changed concurrently, please try again");
+                }
+                retryCounter.increment();
+                log.debug("Cart with id: {} was changed concurrently, retrying attempt {}", cartId, attempt);
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        if (retryBackoffMillis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(retryBackoffMillis * attempt + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying the cart change");
+        }
+    }
+}
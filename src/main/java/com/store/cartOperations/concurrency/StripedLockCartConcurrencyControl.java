@@ -0,0 +1,86 @@
+package com.store.cartOperations.concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serialises the mutations of a cart with an in-process lock. Carts are spread over {@code cart.concurrency.stripes}
+ * locks by id, so mutations of different carts rarely wait for each other and no global lock is taken.
+ * The lock is held until the transaction has committed. It only protects against mutations in the same process,
+ * deployments with several instances should use the optimistic mode.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.concurrency.mode", havingValue = "striped", matchIfMissing = true)
+public class StripedLockCartConcurrencyControl implements CartConcurrencyControl {
+
+    private final ReentrantLock[] stripes;
+    private final TransactionTemplate transactionTemplate;
+    private final DatabasePermits databasePermits;
+    private final long lockTimeoutMillis;
+    private final Timer lockWaitTimer;
+    private final Counter abortCounter;
+
+    public StripedLockCartConcurrencyControl(PlatformTransactionManager transactionManager, DatabasePermits databasePermits,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${cart.concurrency.stripes:64}") int stripeCount,
+                                             @Value("${cart.concurrency.lock-timeout-ms:5000}") long lockTimeoutMillis) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.databasePermits = databasePermits;
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.lockWaitTimer = Timer.builder("cart.concurrency.lock.wait")
+                .description("Time spent waiting for the lock of a cart")
+                .register(meterRegistry);
+        this.abortCounter = Counter.builder("cart.concurrency.aborts")
+                .description("Cart mutations given up because of concurrent mutations of the same cart")
+                .tag("mode", "striped")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> T execute(Integer cartId, Supplier<T> mutation) {
+        ReentrantLock lock = stripe(cartId);
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the cart");
+        } finally {
+            lockWaitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (!locked) {
+            abortCounter.increment();
+            log.error("Timed out waiting for the lock of cart with id: {}", cartId);
+            throw new RuntimeException("Cart is busy, please try again later");
+        }
+        try {
+            return databasePermits.call(() -> transactionTemplate.execute(status -> mutation.get()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(Integer cartId) {
+        int hash = Objects.hashCode(cartId) * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+}
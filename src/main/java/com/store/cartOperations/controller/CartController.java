@@ -1,13 +1,26 @@
 package com.store.cartOperations.controller;
 
+import com.store.cartOperations.domain.Cart;
 import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.pojo.CartSummary;
+import com.store.cartOperations.pojo.CartView;
 import com.store.cartOperations.service.CartService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Cart API. Carts are returned as a {@link CartView}, not as the entity, so responses carry the totals and compact
+ * item lines without the products and the user.
+ */
 @RestController
 @RequestMapping("/cart")
 public class CartController {
@@ -15,10 +28,33 @@ public class CartController {
     @Autowired
     private CartService cartService;
 
+    /**
+     * Returns the cart with its revision as ETag. A request whose If-None-Match header matches the current revision
+     * is answered with 304 Not Modified after looking up only the revision, without loading the cart and its items.
+     */
     @GetMapping("/{cartId}")
-    public ResponseEntity<?> getCart(@PathVariable Integer cartId) {
+    public ResponseEntity<?> getCart(@PathVariable Integer cartId, WebRequest request) {
+        try {
+            if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+                Optional<Long> revision = cartService.getCartRevision(cartId);
+                if (revision.isPresent() && request.checkNotModified(CartView.eTag(revision.get()))) {
+                    return null;
+                }
+            }
+            return ok(cartService.getCart(cartId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the item count and totals of the cart, read without loading its items.
+     */
+    @GetMapping("/{cartId}/summary")
+    public ResponseEntity<?> getCartSummary(@PathVariable Integer cartId) {
         try {
-            return ResponseEntity.ok(cartService.getCart(cartId));
+            CartSummary summary = cartService.getCartSummary(cartId);
+            return ResponseEntity.ok().eTag(CartView.eTag(summary.getRevision())).body(summary);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -28,7 +64,17 @@ public class CartController {
     public ResponseEntity<?> addItemToCart(
             @PathVariable Integer cartId, @RequestBody AddItemRequest productDetails) {
         try {
-            return ResponseEntity.ok(cartService.addItem(cartId, productDetails.getProductId(), productDetails.getQuantity()));
+            return ok(cartService.addItem(cartId, productDetails.getProductId(), productDetails.getQuantity()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/{cartId}/items")
+    public ResponseEntity<?> addItemsToCart(
+            @PathVariable Integer cartId, @RequestBody @NotEmpty List<@Valid AddItemRequest> items) {
+        try {
+            return ok(cartService.addItems(cartId, items));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -38,7 +84,7 @@ public class CartController {
     public ResponseEntity<?> updateItemQuantityToCart(
             @PathVariable Integer cartId, @PathVariable Integer itemId, @RequestParam @Valid @Min(1) Integer quantity) {
         try {
-            return ResponseEntity.ok(cartService.updateItemQuantity(cartId, itemId, quantity));
+            return ok(cartService.updateItemQuantity(cartId, itemId, quantity));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -48,9 +94,14 @@ public class CartController {
     public ResponseEntity<?> removeItemFromCart(
             @PathVariable Integer cartId, @PathVariable Integer itemId) {
         try {
-            return ResponseEntity.ok(cartService.removeItem(cartId, itemId));
+            return ok(cartService.removeItem(cartId, itemId));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    private static ResponseEntity<CartView> ok(Cart cart) {
+        CartView view = CartView.of(cart);
+        return ResponseEntity.ok().eTag(CartView.eTag(view.getRevision())).body(view);
+    }
 }
\ No newline at end of file
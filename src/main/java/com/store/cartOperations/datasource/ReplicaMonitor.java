@@ -0,0 +1,99 @@
+package com.store.cartOperations.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Decides whether reads may go to the replica by measuring its lag with a heartbeat row.
+ * Every {@code datasource.replica.check-interval-ms} the time is written to the heartbeat row on the primary and the row
+ * is read back from the replica; the lag is the age of the time the replica holds. The replica is used while the lag is
+ * at most {@code datasource.replica.max-lag-ms}, which therefore has to be longer than the check interval.
+ * A replica which cannot be read, or whose connections fail, is not used until the next check succeeds.
+ * The lag is published as the {@code datasource.replica.lag} metric.
+ */
+@Slf4j
+public class ReplicaMonitor {
+
+    private static final String HEARTBEAT_TABLE = "CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_at BIGINT NOT NULL)";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+    private volatile long lagMillis = -1;
+    private volatile boolean usable;
+
+    public ReplicaMonitor(DataSource primaryDataSource, DataSource replicaDataSource, MeterRegistry meterRegistry, long maxLagMillis) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLagMillis;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagMillis)
+                .description("Age of the heartbeat read from the replica, -1 while the replica cannot be read")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void createHeartbeat() {
+        primary.execute(HEARTBEAT_TABLE);
+        beat();
+    }
+
+    /**
+     * Writes a new heartbeat to the primary and measures the lag of the replica.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.check-interval-ms:1000}")
+    public void check() {
+        try {
+            beat();
+        } catch (RuntimeException ex) {
+            log.error("Failed to write the replica heartbeat to the primary", ex);
+        }
+        try {
+            List<Long> beats = replica.queryForList("SELECT beat_at FROM replica_heartbeat WHERE id = 1", Long.class);
+            lagMillis = beats.isEmpty() ? -1 : Math.max(0, System.currentTimeMillis() - beats.get(0));
+        } catch (RuntimeException ex) {
+            if (usable) {
+                log.warn("Cannot read the replica heartbeat, reading from the primary", ex);
+            }
+            lagMillis = -1;
+        }
+        boolean wasUsable = usable;
+        usable = lagMillis >= 0 && lagMillis <= maxLagMillis;
+        if (wasUsable && !usable && lagMillis >= 0) {
+            log.warn("Replica lags {}ms behind, more than {}ms, reading from the primary", lagMillis, maxLagMillis);
+        } else if (!wasUsable && usable) {
+            log.info("Replica lags {}ms behind, reading from the replica", lagMillis);
+        }
+    }
+
+    /**
+     * Returns whether reads may go to the replica.
+     */
+    public boolean isUsable() {
+        return usable;
+    }
+
+    /**
+     * Stops using the replica after one of its connections failed, until the next check succeeds.
+     */
+    void failed(Exception ex) {
+        if (usable) {
+            log.warn("Cannot connect to the replica, reading from the primary", ex);
+        }
+        usable = false;
+    }
+
+    private void beat() {
+        long now = System.currentTimeMillis();
+        if (primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", now) == 0) {
+            primary.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", now);
+        }
+    }
+}
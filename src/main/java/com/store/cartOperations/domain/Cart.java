@@ -1,33 +1,147 @@
 package com.store.cartOperations.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The items and the user of a cart are loaded lazily. The cart lookups of {@link com.store.cartOperations.repository.CartRepository}
+ * fetch what the cart operations need with one of the entity graphs below in a single query; the product of an item
+ * stays a lazy reference, its id is read without loading it.
+ */
 @Entity
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Cart.WITH_ITEMS, attributeNodes = @NamedAttributeNode("items")),
+        @NamedEntityGraph(name = Cart.WITH_ITEMS_AND_USER,
+                attributeNodes = {@NamedAttributeNode("items"), @NamedAttributeNode("retailUser")})
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Cart {
 
+    public static final String WITH_ITEMS = "Cart.withItems";
+    public static final String WITH_ITEMS_AND_USER = "Cart.withItemsAndUser";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+    @SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     Integer id;
-    @Builder.Default
-    Double totalCost=0.0;
-    @Builder.Default
-    Double billDiscount=0.0;
-    @Builder.Default
-    Double userDiscount=0.0;
+    /**
+     * Incremented on every update of the cart, used by the optimistic concurrency control.
+     */
+    @Version
+    long version;
+    /**
+     * Incremented by every change of the cart contents, returned as the ETag of the cart.
+     * Unlike the version it is also incremented for carts held in memory by the write-behind store before they are written.
+     */
+    long revision;
+    /**
+     * Time of the last change of the cart contents in epoch milliseconds. Carts not changed for the time to live of
+     * their user's tier are deleted, see {@link com.store.cartOperations.expiry.CartExpiry}.
+     */
+    Long lastActivityAt;
+    /**
+     * Number of items, kept with the totals so the cart summary is read without the items.
+     */
+    int itemCount;
+    /**
+     * Amounts are in minor units, see {@link Money}.
+     */
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    long totalCost;
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    long billDiscount;
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    long userDiscount;
     @NotNull
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     RetailUser retailUser;
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "cart", fetch = FetchType.EAGER)
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "cart")
     List<Item> items;
+    /**
+     * Lookup index over the items, kept in sync by the item methods below and rebuilt when the item list changes otherwise.
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient CartItemIndex itemIndex = new CartItemIndex();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final transient ReentrantLock mutationLock = new ReentrantLock();
+
+    /**
+     * Returns the lock guarding changes of this cart instance, which the write-behind store shares between requests.
+     * A lock is used instead of synchronizing on the cart so a virtual thread waiting for it is not pinned to its carrier.
+     */
+    public Lock mutationLock() {
+        return mutationLock;
+    }
+
+    /**
+     * Returns the item of the given product, or null if the product is not in the cart.
+     */
+    public Item findItemByProduct(int productId) {
+        return items != null ? itemIndex.sync(items).byProduct(productId) : null;
+    }
+
+    /**
+     * Returns the item with the given id, or null if the item is not in the cart.
+     */
+    public Item findItem(int itemId) {
+        return items != null ? itemIndex.sync(items).byId(itemId) : null;
+    }
+
+    /**
+     * Appends an item to the cart and indexes it.
+     */
+    public void addItem(Item item) {
+        if (items == null) {
+            items = new ArrayList<>();
+        }
+        CartItemIndex index = itemIndex.sync(items);
+        items.add(item);
+        index.added(item);
+    }
+
+    /**
+     * Removes an item from the cart and from the index.
+     */
+    public void removeItem(Item item) {
+        if (items == null) {
+            return;
+        }
+        CartItemIndex index = itemIndex.sync(items);
+        if (items.remove(item)) {
+            index.removed(item);
+        }
+    }
+
+    /**
+     * Indexes the id of a saved item, new items only get their id once they are saved.
+     */
+    public void indexItem(Item item) {
+        if (items != null) {
+            itemIndex.sync(items).indexId(item);
+        }
+    }
 }
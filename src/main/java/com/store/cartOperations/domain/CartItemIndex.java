@@ -0,0 +1,180 @@
+package com.store.cartOperations.domain;
+
+import java.util.List;
+
+/**
+ * Index of the items of one cart by product id and by item id, so the cart operations find a line in constant time
+ * instead of scanning the items. The ids are kept in primitive int tables with open addressing, so a lookup neither
+ * boxes the id nor allocates.
+ * The index is rebuilt from the items whenever the item list was replaced or changed without going through the cart,
+ * e.g. when the cart is loaded. It is not thread safe, changes of a cart are already serialised by the cart operations.
+ */
+final class CartItemIndex {
+
+    private final IntTable byProduct = new IntTable();
+    private final IntTable byId = new IntTable();
+    private List<Item> indexedItems;
+    private int indexedSize;
+
+    /**
+     * Rebuilds the index if it does not reflect the given items.
+     */
+    CartItemIndex sync(List<Item> items) {
+        if (items != indexedItems || items.size() != indexedSize) {
+            byProduct.clear(items.size());
+            byId.clear(items.size());
+            indexedItems = items;
+            indexedSize = 0;
+            for (Item item : items) {
+                added(item);
+            }
+        }
+        return this;
+    }
+
+    Item byProduct(int productId) {
+        return byProduct.get(productId);
+    }
+
+    Item byId(int itemId) {
+        return byId.get(itemId);
+    }
+
+    /**
+     * Indexes an item which was appended to the indexed items.
+     */
+    void added(Item item) {
+        if (item.getProduct() != null && item.getProduct().getId() != null) {
+            byProduct.putIfAbsent(item.getProduct().getId(), item);
+        }
+        indexId(item);
+        indexedSize++;
+    }
+
+    /**
+     * Drops an item which was removed from the indexed items.
+     */
+    void removed(Item item) {
+        if (item.getProduct() != null && item.getProduct().getId() != null) {
+            byProduct.remove(item.getProduct().getId(), item);
+        }
+        if (item.getId() != null) {
+            byId.remove(item.getId(), item);
+        }
+        indexedSize--;
+    }
+
+    /**
+     * Indexes the id of an item, which new items only get once they are saved.
+     */
+    void indexId(Item item) {
+        if (item.getId() != null) {
+            byId.put(item.getId(), item);
+        }
+    }
+
+    /**
+     * Int keyed hash table with linear probing. A null value marks a free slot, removal shifts the following
+     * entries back so lookups never need tombstones.
+     */
+    private static final class IntTable {
+
+        private static final int MIN_CAPACITY = 8;
+
+        private int[] keys = new int[MIN_CAPACITY];
+        private Item[] values = new Item[MIN_CAPACITY];
+        private int size;
+
+        Item get(int key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(int key, Item value) {
+            insert(key, value, true);
+        }
+
+        void putIfAbsent(int key, Item value) {
+            insert(key, value, false);
+        }
+
+        /**
+         * Removes the entry of the key if it still maps to the given value.
+         */
+        void remove(int key, Item value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] != value) {
+                return;
+            }
+            values[i] = null;
+            size--;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean stays = i < j ? home > i && home <= j : home > i || home <= j;
+                if (!stays) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        void clear(int expectedSize) {
+            int capacity = MIN_CAPACITY;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new int[capacity];
+            values = new Item[capacity];
+            size = 0;
+        }
+
+        private void insert(int key, Item value, boolean replace) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    if (replace) {
+                        values[i] = value;
+                    }
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            Item[] oldValues = values;
+            keys = new int[oldKeys.length << 1];
+            values = new Item[oldValues.length << 1];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    insert(oldKeys[i], oldValues[i], true);
+                }
+            }
+        }
+
+        private static int slot(int key, int mask) {
+            int hash = key * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
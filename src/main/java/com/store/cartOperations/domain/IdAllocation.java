@@ -0,0 +1,17 @@
+package com.store.cartOperations.domain;
+
+/**
+ * Id allocation of the entities. Each sequence call reserves a block of {@link #BLOCK_SIZE} ids which Hibernate then
+ * hands out in memory with the pooled-lo optimizer, so an insert only waits for the sequence once per block.
+ * The sequences are created with this increment. For an existing database the block size is changed on the sequence,
+ * e.g. {@code ALTER SEQUENCE item_seq INCREMENT BY 500}; Hibernate adopts the increment of the database at startup.
+ * Rows inserted with their own ids, like the ones of {@code import.sql} or the seeded rows, must be followed by a restart
+ * of the sequence past them, since the block starting at the sequence value is handed out without checking the table.
+ */
+public final class IdAllocation {
+
+    public static final int BLOCK_SIZE = 100;
+
+    private IdAllocation() {
+    }
+}
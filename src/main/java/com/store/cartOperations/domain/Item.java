@@ -1,6 +1,7 @@
 package com.store.cartOperations.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -8,6 +9,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @NoArgsConstructor
@@ -17,7 +19,8 @@ import lombok.NoArgsConstructor;
 @JsonIgnoreProperties("cart")
 public class Item {
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Integer id;
     @NotNull
     private String name;
@@ -26,14 +29,26 @@ public class Item {
     @NotNull
     @Min(1)
     private Integer quantity;
-    @NotNull
-    private Double price;
+    /**
+     * The part of the quantity which was reserved from the stock of the product, see
+     * {@link com.store.cartOperations.inventory.InventoryReservations}. Only this part is given back when the quantity
+     * is reduced or the item is removed; items stored before stock was reserved hold none.
+     */
+    @ColumnDefault("0")
+    private int reservedQuantity;
+    /**
+     * Amounts are in minor units, see {@link Money}.
+     */
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long price;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull
     private Product product;
-    @Builder.Default
-    private Double discount=0.0;
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long discount;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "cart_id", nullable = false)
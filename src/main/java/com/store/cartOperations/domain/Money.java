@@ -0,0 +1,59 @@
+package com.store.cartOperations.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed point money arithmetic. Amounts of carts and items are held as primitive longs counting minor units
+ * (cents), so the cart math neither boxes nor accumulates floating point drift.
+ * {@link #UNKNOWN} marks an amount whose column was null, e.g. a cart inserted without running totals.
+ */
+public final class Money {
+
+    public static final int SCALE = 2;
+    public static final long MINOR_UNITS = 100;
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in major units, e.g. 12.5, to minor units, e.g. 1250, rounding half up.
+     */
+    public static long of(double amount) {
+        return Math.round(amount * MINOR_UNITS);
+    }
+
+    /**
+     * Converts a decimal amount in major units to minor units, rounding half up.
+     */
+    public static long of(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static double toDouble(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS;
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * Returns the cost of the given quantity at the given unit price.
+     */
+    public static long times(long minorUnits, int quantity) {
+        return Math.multiplyExact(minorUnits, quantity);
+    }
+
+    /**
+     * Returns the given fraction of the amount, e.g. 0.3 for 30 %, rounded to the nearest minor unit.
+     */
+    public static long percentage(long minorUnits, double rate) {
+        return Math.round(minorUnits * rate);
+    }
+
+    public static boolean isKnown(long minorUnits) {
+        return minorUnits != UNKNOWN;
+    }
+}
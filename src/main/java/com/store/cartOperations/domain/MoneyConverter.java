@@ -0,0 +1,24 @@
+package com.store.cartOperations.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores minor unit amounts as decimal columns in major units, so the database keeps readable amounts
+ * such as 2020.00 while the entities hold 202000.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+        return minorUnits == null || minorUnits == Money.UNKNOWN ? null : Money.toDecimal(minorUnits);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? Money.UNKNOWN : Money.of(amount);
+    }
+}
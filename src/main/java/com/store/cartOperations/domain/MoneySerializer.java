@@ -0,0 +1,27 @@
+package com.store.cartOperations.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes minor unit amounts as numbers in major units, so API responses keep amounts such as 100.0.
+ * Unknown amounts, see {@link Money#UNKNOWN}, are written as null.
+ */
+public class MoneySerializer extends StdSerializer<Long> {
+
+    public MoneySerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long minorUnits, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (Money.isKnown(minorUnits)) {
+            generator.writeNumber(Money.toDouble(minorUnits));
+        } else {
+            generator.writeNull();
+        }
+    }
+}
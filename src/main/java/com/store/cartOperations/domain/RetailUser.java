@@ -1,26 +1,41 @@
 package com.store.cartOperations.domain;
 
+import com.store.cartOperations.service.RetailUserTierListener;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.UniqueElements;
 
 import java.util.Date;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = RetailUser.CACHE_REGION)
+@Table(indexes = @Index(name = "idx_retail_user_tier_registered_on", columnList = "tier, registeredOn"))
+@EntityListeners(RetailUserTierListener.class)
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
 @Builder
 public class RetailUser {
 
+    public static final String CACHE_REGION = "retail-user";
+
     //Generate documentation for the class
     /**
      * This class represents a user of the store.
@@ -29,7 +44,8 @@ public class RetailUser {
      */
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "retail_user_seq")
+    @SequenceGenerator(name = "retail_user_seq", sequenceName = "retail_user_seq", allocationSize = IdAllocation.BLOCK_SIZE)
     private Integer id;
     @NotNull
     private String name;
@@ -44,4 +60,9 @@ public class RetailUser {
     private boolean isAffiliated=false;
     @NotNull
     private Date registeredOn;
+    /**
+     * Discount tier of the user, derived from the flags and the registration date when the user is saved,
+     * and moved to LOYAL by the loyalty roll-over job once the user passes the loyalty period.
+     */
+    private UserTier tier;
 }
@@ -0,0 +1,13 @@
+package com.store.cartOperations.domain;
+
+/**
+ * Discount tier of a retail user, from the lowest to the highest priority.
+ * Employees get the employee discount, affiliated users the affiliated discount,
+ * and other users registered for longer than the loyalty period the loyalty discount.
+ */
+public enum UserTier {
+    NONE,
+    LOYAL,
+    AFFILIATED,
+    EMPLOYEE
+}
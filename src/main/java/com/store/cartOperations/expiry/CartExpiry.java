@@ -0,0 +1,260 @@
+package com.store.cartOperations.expiry;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.shard.CartShards;
+import com.store.cartOperations.store.CartStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes carts which were not changed for the time to live of their user's tier, {@code cart.expiry.ttl-hours.<tier>}.
+ * The deadline of every cart is tracked in a {@link TimingWheel} advanced every {@code cart.expiry.tick-ms}; a change
+ * of a cart only moves its deadline, which costs the same for any number of carts. Carts whose deadline passed are
+ * checked against their {@code last_activity_at} and deleted with their items in batches of {@code cart.expiry.batch-size},
+ * giving their reserved stock back. Each cart is evicted from the {@link CartStore} before it is deleted; a cart the
+ * store keeps, e.g. with changes the write-behind store has not written yet, is checked again later.
+ * The deadlines are held per instance and loaded from the carts at startup.
+ * Disabled with {@code cart.expiry.enabled=false} and in the journal store mode, whose cart rows are not updated.
+ */
+@Component
+@Slf4j
+public class CartExpiry {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate purgeTransaction;
+    private final InventoryReservations inventoryReservations;
+    private final CartShards cartShards;
+    private final CartStore cartStore;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Map<UserTier, Long> ttlMillis = new EnumMap<>(UserTier.class);
+    private final ConcurrentMap<Integer, TimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final TimingWheel wheel;
+    private final Counter expiredCounter;
+    private final Timer purgeTimer;
+
+    public CartExpiry(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                      InventoryReservations inventoryReservations, CartShards cartShards, CartStore cartStore,
+                      MeterRegistry meterRegistry,
+                      @Value("${cart.expiry.enabled:true}") boolean enabled,
+                      @Value("${cart.store.mode:direct}") String storeMode,
+                      @Value("${cart.expiry.tick-ms:1000}") long tickMillis,
+                      @Value("${cart.expiry.batch-size:500}") int batchSize,
+                      @Value("${cart.expiry.ttl-hours.none:168}") long noneTtlHours,
+                      @Value("${cart.expiry.ttl-hours.loyal:336}") long loyalTtlHours,
+                      @Value("${cart.expiry.ttl-hours.affiliated:336}") long affiliatedTtlHours,
+                      @Value("${cart.expiry.ttl-hours.employee:720}") long employeeTtlHours) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.purgeTransaction = new TransactionTemplate(transactionManager);
+        this.purgeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.inventoryReservations = inventoryReservations;
+        this.cartShards = cartShards;
+        this.cartStore = cartStore;
+        this.enabled = enabled && !"journal".equals(storeMode);
+        this.batchSize = batchSize;
+        this.ttlMillis.put(UserTier.NONE, TimeUnit.HOURS.toMillis(noneTtlHours));
+        this.ttlMillis.put(UserTier.LOYAL, TimeUnit.HOURS.toMillis(loyalTtlHours));
+        this.ttlMillis.put(UserTier.AFFILIATED, TimeUnit.HOURS.toMillis(affiliatedTtlHours));
+        this.ttlMillis.put(UserTier.EMPLOYEE, TimeUnit.HOURS.toMillis(employeeTtlHours));
+        this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis());
+        this.expiredCounter = Counter.builder("cart.expiry.expired")
+                .description("Carts deleted because they were not changed for their time to live")
+                .register(meterRegistry);
+        this.purgeTimer = Timer.builder("cart.expiry.purge")
+                .description("Time taken to delete one batch of expired carts")
+                .register(meterRegistry);
+        Gauge.builder("cart.expiry.tracked", timeouts, Map::size)
+                .description("Number of carts whose expiry is tracked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records a change of the cart: sets its last activity and moves its deadline by the time to live of its user's tier.
+     *
+     * @param cart The changed cart, with its user loaded.
+     */
+    public void touch(Cart cart) {
+        long now = System.currentTimeMillis();
+        cart.setLastActivityAt(now);
+        if (!enabled) {
+            return;
+        }
+        long ttl = ttlOf(cart.getRetailUser() != null ? cart.getRetailUser().getTier() : null);
+        TimingWheel.Timeout timeout = timeouts.get(cart.getId());
+        if (timeout != null) {
+            timeout.ttlMillis = ttl;
+            timeout.deadline = now + ttl;
+            return;
+        }
+        track(cart.getId(), now, ttl);
+    }
+
+    /**
+     * Tracks the carts stored before this instance started, reading them in pages of {@code cart.expiry.batch-size}.
+     * Carts without a last activity, e.g. seeded carts, count as changed now.
+     */
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        for (int shard = 0; shard < cartShards.count(); shard++) {
+            cartShards.runOnShard(shard, () -> {
+                int backfilled = jdbcTemplate.update("UPDATE cart SET last_activity_at = ? WHERE last_activity_at IS NULL", start);
+                log.debug("Set the last activity of {} carts to now", backfilled);
+                int afterId = 0;
+                List<Map<String, Object>> page;
+                while (!(page = jdbcTemplate.queryForList("SELECT c.id, c.last_activity_at, u.tier FROM cart c "
+                        + "LEFT JOIN retail_user u ON u.id = c.retail_user_id WHERE c.id > ? ORDER BY c.id LIMIT ?", afterId, batchSize)).isEmpty()) {
+                    for (Map<String, Object> row : page) {
+                        Number tier = (Number) row.get("tier");
+                        Number lastActivity = (Number) row.get("last_activity_at");
+                        track(((Number) row.get("id")).intValue(), lastActivity != null ? lastActivity.longValue() : start,
+                                ttlOf(tier != null ? UserTier.values()[tier.intValue()] : null));
+                    }
+                    afterId = ((Number) page.get(page.size() - 1).get("id")).intValue();
+                }
+            });
+        }
+        log.info("Tracking the expiry of {} carts, loaded in {}ms", timeouts.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Advances the timing wheel and deletes the carts whose deadline passed.
+     */
+    @Scheduled(fixedDelayString = "${cart.expiry.tick-ms:1000}")
+    public void expire() {
+        if (!enabled) {
+            return;
+        }
+        List<TimingWheel.Timeout> due = new ArrayList<>();
+        wheelLock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), due::add);
+        } finally {
+            wheelLock.unlock();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<TimingWheel.Timeout>> byShard = due.stream()
+                .collect(Collectors.groupingBy(timeout -> cartShards.shardOf(timeout.cartId)));
+        byShard.forEach((shard, shardTimeouts) -> {
+            for (int from = 0; from < shardTimeouts.size(); from += batchSize) {
+                List<TimingWheel.Timeout> batch = shardTimeouts.subList(from, Math.min(from + batchSize, shardTimeouts.size()));
+                cartShards.runOnShard(shard, () -> purge(batch));
+            }
+        });
+    }
+
+    private void purge(List<TimingWheel.Timeout> batch) {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        Map<Integer, TimingWheel.Timeout> candidates = new HashMap<>();
+        batch.forEach(timeout -> candidates.put(timeout.cartId, timeout));
+        Set<Integer> expired = new LinkedHashSet<>();
+        Map<Integer, Long> lastActivity = new HashMap<>();
+        try {
+            purgeTransaction.executeWithoutResult(status -> {
+                String in = placeholders(candidates.size());
+                // Locks the carts, a change committing meanwhile is seen and keeps the cart.
+                jdbcTemplate.query("SELECT id, last_activity_at FROM cart WHERE id IN (" + in + ") FOR UPDATE",
+                        resultSet -> {
+                            lastActivity.put(resultSet.getInt(1), resultSet.getLong(2));
+                        }, candidates.keySet().toArray());
+                lastActivity.forEach((cartId, activity) -> {
+                    TimingWheel.Timeout timeout = candidates.get(cartId);
+                    // A change not committed yet has already moved the deadline.
+                    if (activity + timeout.ttlMillis <= now && timeout.deadline <= now && cartStore.evict(cartId)) {
+                        expired.add(cartId);
+                    }
+                });
+                if (expired.isEmpty()) {
+                    return;
+                }
+                String expiredIn = placeholders(expired.size());
+                Object[] expiredIds = expired.toArray();
+                jdbcTemplate.query("SELECT product_id, SUM(reserved_quantity) FROM item WHERE cart_id IN (" + expiredIn + ") GROUP BY product_id",
+                        resultSet -> {
+                            inventoryReservations.release(resultSet.getInt(1), resultSet.getInt(2));
+                        }, expiredIds);
+                jdbcTemplate.update("DELETE FROM item WHERE cart_id IN (" + expiredIn + ")", expiredIds);
+                jdbcTemplate.update("DELETE FROM cart WHERE id IN (" + expiredIn + ")", expiredIds);
+            });
+        } catch (RuntimeException ex) {
+            log.error("Failed to delete expired carts {}, they will be retried", candidates.keySet(), ex);
+            expired.clear();
+            lastActivity.clear();
+            candidates.keySet().forEach(cartId -> lastActivity.put(cartId, now - candidates.get(cartId).ttlMillis));
+        }
+        wheelLock.lock();
+        try {
+            for (TimingWheel.Timeout timeout : batch) {
+                Long activity = lastActivity.get(timeout.cartId);
+                if (activity == null || expired.contains(timeout.cartId)) {
+                    // Deleted, or no longer in this shard's cart table.
+                    timeouts.remove(timeout.cartId, timeout);
+                } else {
+                    timeout.deadline = Math.max(timeout.deadline, activity + timeout.ttlMillis);
+                    wheel.schedule(timeout);
+                }
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+        expiredCounter.increment(expired.size());
+        purgeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.info("Deleted {} expired carts out of {} due", expired.size(), batch.size());
+    }
+
+    private void track(int cartId, long lastActivity, long ttl) {
+        TimingWheel.Timeout created = new TimingWheel.Timeout(cartId, lastActivity + ttl, ttl);
+        TimingWheel.Timeout existing = timeouts.putIfAbsent(cartId, created);
+        if (existing != null) {
+            existing.ttlMillis = ttl;
+            existing.deadline = Math.max(existing.deadline, lastActivity + ttl);
+            return;
+        }
+        wheelLock.lock();
+        try {
+            wheel.schedule(created);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private long ttlOf(UserTier tier) {
+        return ttlMillis.get(tier != null ? tier : UserTier.NONE);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
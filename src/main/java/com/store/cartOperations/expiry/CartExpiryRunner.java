@@ -0,0 +1,26 @@
+package com.store.cartOperations.expiry;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the expiry of the stored carts at startup, after the seed data and the catalog import were written and the
+ * carts were moved to their shards.
+ */
+@Component
+@Order(3)
+public class CartExpiryRunner implements ApplicationRunner {
+
+    private final CartExpiry cartExpiry;
+
+    public CartExpiryRunner(CartExpiry cartExpiry) {
+        this.cartExpiry = cartExpiry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        cartExpiry.load();
+    }
+}
@@ -0,0 +1,128 @@
+package com.store.cartOperations.expiry;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical hashed timing wheel of {@link #LEVELS} wheels with {@link #SLOTS} slots each. A slot of the first wheel
+ * spans one tick, a slot of every further wheel spans all slots of the wheel below, so four wheels of 64 slots cover
+ * 64^4 ticks (194 days at one second per tick). A timeout is linked into the slot of its deadline on the lowest wheel
+ * whose range reaches it; when the ticks pass the start of a higher slot, its timeouts move down to the wheel below.
+ * Scheduling and unlinking are O(1) and advancing is O(1) per tick and per expired timeout.
+ * A deadline may be moved later without touching the wheel at all: when its slot comes up, a timeout whose deadline
+ * has not passed yet is linked again at its new deadline instead of being expired.
+ * Not thread safe, the caller serialises scheduling and advancing.
+ */
+final class TimingWheel {
+
+    static final int LEVELS = 4;
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long RANGE = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        for (Timeout[] level : slots) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout head = new Timeout(0, 0, 0);
+                head.previous = head;
+                head.next = head;
+                level[slot] = head;
+            }
+        }
+    }
+
+    /**
+     * Links the timeout into the slot of its deadline; a deadline which has passed expires with the next tick.
+     */
+    void schedule(Timeout timeout) {
+        long delta = Math.max(1, timeout.deadline / tickMillis - currentTick);
+        long tick = currentTick + Math.min(delta, RANGE - 1);
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timeout head = slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+        timeout.previous = head.previous;
+        timeout.next = head;
+        head.previous.next = timeout;
+        head.previous = timeout;
+        size++;
+    }
+
+    /**
+     * Advances the wheel to the given time, passing every timeout whose deadline has passed to the consumer.
+     * Expired timeouts are unlinked and may be scheduled again.
+     */
+    void advance(long nowMillis, Consumer<Timeout> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            for (int level = 1; level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+                Timeout head = slots[level][(int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK];
+                for (Timeout timeout = unlinkAll(head); timeout != null; ) {
+                    Timeout next = timeout.next;
+                    schedule(timeout);
+                    timeout = next;
+                }
+            }
+            Timeout head = slots[0][(int) currentTick & SLOT_MASK];
+            for (Timeout timeout = unlinkAll(head); timeout != null; ) {
+                Timeout next = timeout.next;
+                if (timeout.deadline / tickMillis > currentTick) {
+                    schedule(timeout);
+                } else {
+                    timeout.next = null;
+                    expired.accept(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Empties the slot and returns its timeouts as a list chained by {@code next}.
+     */
+    private Timeout unlinkAll(Timeout head) {
+        if (head.next == head) {
+            return null;
+        }
+        Timeout first = head.next;
+        head.previous.next = null;
+        head.previous = head;
+        head.next = head;
+        for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+            timeout.previous = null;
+            size--;
+        }
+        return first;
+    }
+
+    /**
+     * Expiry of one cart. The deadline and the time to live are updated without the wheel on every change of the cart.
+     */
+    static final class Timeout {
+
+        final int cartId;
+        volatile long deadline;
+        volatile long ttlMillis;
+        private Timeout previous;
+        private Timeout next;
+
+        Timeout(int cartId, long deadline, long ttlMillis) {
+            this.cartId = cartId;
+            this.deadline = deadline;
+            this.ttlMillis = ttlMillis;
+        }
+    }
+}
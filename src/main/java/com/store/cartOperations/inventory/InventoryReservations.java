@@ -0,0 +1,238 @@
+package com.store.cartOperations.inventory;
+
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.shard.ShardDataSources;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the available quantity of every product put into a cart in an in-memory counter, so reservations of a hot
+ * product never wait for a row lock. A reservation takes the quantity off the counter with a compare-and-set and is
+ * refused when the counter would go below zero; it is given back if the cart transaction rolls back. Quantities taken
+ * out of carts are given back once the cart transaction has committed, so a rolled back removal never frees stock.
+ * Items record the quantity reserved for them, see {@link com.store.cartOperations.domain.Item#getReservedQuantity()},
+ * and only that is given back, so removing items stored before stock was reserved does not add stock.
+ * The counter of a product is loaded from {@link Product#getAvailableQuantity()} when it is first reserved. The change
+ * since the last write is added to the product table every {@code inventory.reconcile-interval-ms} in JDBC batches of
+ * {@code inventory.reconcile.batch-size} updates. Only the change is written, so quantities added to the table by
+ * others are kept, but they are not seen by a counter which is already loaded. The written products are evicted from
+ * the second-level cache, which does not see JDBC updates.
+ * When carts are sharded the counters are loaded from the first shard, which the changes are written to; the product
+ * copies on the other shards are only refreshed by {@link com.store.cartOperations.shard.ReferenceDataReplicator}.
+ * The counters are held per instance, several instances sharing the database would each hand out the whole stock.
+ */
+@Component
+@Slf4j
+public class InventoryReservations {
+
+    private static final String RECONCILE_SQL = "UPDATE product SET available_quantity = available_quantity - ? WHERE id = ?";
+    private static final String AVAILABLE_SQL = "SELECT available_quantity FROM product WHERE id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    /**
+     * Connections of the first shard which are not bound to the cart transaction, null when carts are not sharded.
+     */
+    private final JdbcTemplate referenceJdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int reconcileBatchSize;
+    private final Counter rejectedCounter;
+    private final ConcurrentMap<Integer, Stock> stocks = new ConcurrentHashMap<>();
+    private final Set<Integer> unreconciled = ConcurrentHashMap.newKeySet();
+
+    public InventoryReservations(ProductRepository productRepository, JdbcTemplate jdbcTemplate,
+                                 EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+                                 ObjectProvider<ShardDataSources> shardDataSources,
+                                 @Value("${inventory.reconcile.batch-size:500}") int reconcileBatchSize) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        ShardDataSources shards = shardDataSources.getIfAvailable();
+        this.referenceJdbcTemplate = shards != null ? shards.jdbcTemplate(0) : null;
+        this.entityManagerFactory = entityManagerFactory;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.rejectedCounter = Counter.builder("inventory.reservations.rejected")
+                .description("Reservations refused because the product was out of stock")
+                .register(meterRegistry);
+        Gauge.builder("inventory.unreconciled.products", unreconciled, Set::size)
+                .description("Number of products whose reservations are not yet written to the product table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * This method reserves the quantity of the product for a cart.
+     * Within a transaction the reservation is given back if the transaction rolls back.
+     *
+     * @param productId The id of the product.
+     * @param quantity  The quantity to reserve.
+     * @throws RuntimeException if less than the quantity is available.
+     */
+    public void reserve(Integer productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        Stock stock = stock(productId);
+        long available = stock.available.get();
+        while (available >= quantity) {
+            if (stock.available.compareAndSet(available, available - quantity)) {
+                changed(productId, stock, quantity);
+                if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) {
+                                giveBack(productId, stock, quantity);
+                            }
+                        }
+                    });
+                }
+                return;
+            }
+            available = stock.available.get();
+        }
+        rejectedCounter.increment();
+        log.error("Insufficient stock for product with id: {}, requested: {} and available: {}", productId, quantity, available);
+        throw new RuntimeException("Insufficient stock for product");
+    }
+
+    /**
+     * This method gives back a reserved quantity of the product, once the current transaction has committed.
+     * Only quantities taken by {@link #reserve(Integer, int)} may be given back.
+     *
+     * @param productId The id of the product.
+     * @param quantity  The quantity to give back.
+     */
+    public void release(Integer productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        Stock stock = stock(productId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    giveBack(productId, stock, quantity);
+                }
+            });
+        } else {
+            giveBack(productId, stock, quantity);
+        }
+    }
+
+    /**
+     * This method returns the quantity of the product which can still be reserved.
+     *
+     * @param productId The id of the product.
+     * @return The available quantity.
+     */
+    public long available(Integer productId) {
+        return stock(productId).available.get();
+    }
+
+    /**
+     * Writes the reservations and releases since the last run to the product table.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reconcile-interval-ms:1000}")
+    public void reconcile() {
+        List<Integer> productIds = new ArrayList<>(reconcileBatchSize);
+        List<Object[]> batch = new ArrayList<>(reconcileBatchSize);
+        Iterator<Integer> iterator = unreconciled.iterator();
+        while (iterator.hasNext()) {
+            Integer productId = iterator.next();
+            iterator.remove();
+            long delta = stocks.get(productId).unreconciled.getAndSet(0);
+            if (delta != 0) {
+                productIds.add(productId);
+                batch.add(new Object[]{delta, productId});
+            }
+            if (batch.size() == reconcileBatchSize) {
+                writeBatch(productIds, batch);
+                productIds.clear();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(productIds, batch);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        log.info("Writing the reservations of {} products before shutdown", unreconciled.size());
+        reconcile();
+    }
+
+    private void writeBatch(List<Integer> productIds, List<Object[]> batch) {
+        try {
+            jdbcTemplate.batchUpdate(RECONCILE_SQL, batch);
+            productIds.forEach(productId -> entityManagerFactory.getCache().evict(Product.class, productId));
+            log.debug("Reconciled the stock of {} products", batch.size());
+        } catch (RuntimeException ex) {
+            log.error("Failed to reconcile the stock of products {}, they will be retried", productIds, ex);
+            for (int i = 0; i < productIds.size(); i++) {
+                Integer productId = productIds.get(i);
+                changed(productId, stocks.get(productId), (Long) batch.get(i)[0]);
+            }
+        }
+    }
+
+    private Stock stock(Integer productId) {
+        Stock stock = stocks.get(productId);
+        if (stock != null) {
+            return stock;
+        }
+        // Loaded outside the map so no bin of it is locked during the query; a concurrent load reads the same quantity
+        // because nothing was reserved for the product yet.
+        long available = loadAvailable(productId);
+        Stock loaded = stocks.putIfAbsent(productId, new Stock(available));
+        return loaded != null ? loaded : stocks.get(productId);
+    }
+
+    private long loadAvailable(Integer productId) {
+        if (referenceJdbcTemplate != null) {
+            // The cart transaction holds a connection to the shard of the cart, whose product copy may be behind.
+            return referenceJdbcTemplate.query(AVAILABLE_SQL, rs -> rs.next() ? rs.getLong(1) : 0L, productId);
+        }
+        return productRepository.findById(productId)
+                .map(Product::getAvailableQuantity)
+                .orElse(0);
+    }
+
+    private void giveBack(Integer productId, Stock stock, long quantity) {
+        stock.available.addAndGet(quantity);
+        changed(productId, stock, -quantity);
+    }
+
+    private void changed(Integer productId, Stock stock, long reserved) {
+        stock.unreconciled.addAndGet(reserved);
+        unreconciled.add(productId);
+    }
+
+    private static final class Stock {
+        private final AtomicLong available;
+        private final AtomicLong unreconciled = new AtomicLong();
+
+        private Stock(long available) {
+            this.available = new AtomicLong(available);
+        }
+    }
+}
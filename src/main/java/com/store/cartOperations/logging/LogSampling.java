@@ -0,0 +1,47 @@
+package com.store.cartOperations.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per operation sampling decision for the debug and info lines of the hot paths. An operation is sampled 1 in N times,
+ * and the decision holds for everything logged while it runs, including nested operations, so a sampled operation
+ * is logged completely and the others not at all. Warnings and errors are never dropped, see {@link SampledLogFilter}.
+ */
+public final class LogSampling {
+
+    private static final ThreadLocal<Boolean> SAMPLED = new ThreadLocal<>();
+
+    private LogSampling() {
+    }
+
+    /**
+     * Returns whether the operation running on the current thread is sampled, or null outside of an operation.
+     */
+    public static Boolean current() {
+        return SAMPLED.get();
+    }
+
+    /**
+     * Starts an operation on the current thread. A nested operation keeps the decision of the outer one, otherwise
+     * the operation is sampled with a probability of 1 in sampleRate.
+     *
+     * @param sampleRate The N of 1 in N, 1 or less samples every operation.
+     * @return The decision of the outer operation, to be passed to {@link #end(Boolean)}.
+     */
+    public static Boolean begin(int sampleRate) {
+        Boolean outer = SAMPLED.get();
+        if (outer == null) {
+            SAMPLED.set(sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0);
+        }
+        return outer;
+    }
+
+    /**
+     * Ends an operation on the current thread and restores the decision of the outer operation.
+     */
+    public static void end(Boolean outer) {
+        if (outer == null) {
+            SAMPLED.remove();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.store.cartOperations.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+/**
+ * Drops the debug and info lines of operations which are not sampled, see {@link LogSampling}.
+ * As a turbo filter it runs before the message is formatted, so a dropped line costs neither the formatting
+ * nor a slot in the asynchronous appender queue. Warnings and errors always pass, as do lines logged outside of
+ * an operation. Registered in logback-spring.xml.
+ */
+public class SampledLogFilter extends TurboFilter {
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        return Boolean.FALSE.equals(LogSampling.current()) ? FilterReply.DENY : FilterReply.NEUTRAL;
+    }
+}
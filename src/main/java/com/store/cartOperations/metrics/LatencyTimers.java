@@ -0,0 +1,83 @@
+package com.store.cartOperations.metrics;
+
+import com.store.cartOperations.logging.LogSampling;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Nanosecond timers with percentile histograms for the stages of a cart request, e.g. the cart operation
+ * ({@link #CART_OPERATION}) and the discount calculation ({@link #DISCOUNT_APPLY}) within it.
+ * Each timer publishes p50, p99 and p999 as gauges under {@code /actuator/metrics} and its histogram buckets under
+ * {@code /actuator/prometheus}, so percentiles can be compared across stages and aggregated across instances.
+ * The repository calls are timed by Spring Data as {@code spring.data.repository.invocations} and whole requests
+ * by Spring MVC as {@code http.server.requests}, both with histograms enabled in application.properties.
+ * Each timed call also decides whether its debug lines are logged, see {@link LogSampling}, and logs its duration:
+ * calls over {@code logging.hot-path.slow-threshold-ms} always as a warning, the others only when sampled.
+ */
+@Component
+@Slf4j
+public class LatencyTimers {
+
+    public static final String CART_OPERATION = "cart.operation";
+    public static final String DISCOUNT_APPLY = "discount.apply";
+
+    private final MeterRegistry meterRegistry;
+    private final int sampleRate;
+    private final long slowThresholdNanos;
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
+    public LatencyTimers(MeterRegistry meterRegistry,
+                         @Value("${logging.hot-path.sample-rate:1}") int sampleRate,
+                         @Value("${logging.hot-path.slow-threshold-ms:500}") long slowThresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+    }
+
+    /**
+     * Runs the work and records its duration in the timer of the given stage and operation.
+     *
+     * @param stage     The timer name, e.g. {@link #CART_OPERATION}.
+     * @param operation The value of the {@code operation} tag, e.g. the method name.
+     * @param work      The work to time.
+     * @return The result of the work.
+     */
+    public <T> T record(String stage, String operation, Supplier<T> work) {
+        Timer timer = timer(stage, operation);
+        Boolean outer = LogSampling.begin(sampleRate);
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long duration = System.nanoTime() - start;
+            timer.record(duration, TimeUnit.NANOSECONDS);
+            if (duration >= slowThresholdNanos) {
+                log.warn("Slow {} {} took {}ms", stage, operation, TimeUnit.NANOSECONDS.toMillis(duration));
+            } else {
+                log.debug("{} {} took {}us", stage, operation, TimeUnit.NANOSECONDS.toMicros(duration));
+            }
+            LogSampling.end(outer);
+        }
+    }
+
+    private Timer timer(String stage, String operation) {
+        // Nested maps so a lookup does not build a key string on every call.
+        return timers.computeIfAbsent(stage, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, tag -> Timer.builder(stage)
+                        .tag("operation", operation)
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(10_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry));
+    }
+}
@@ -0,0 +1,30 @@
+package com.store.cartOperations.pojo;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.MoneySerializer;
+import lombok.Value;
+
+/**
+ * Item count and totals of a cart, for headers and mini cart widgets.
+ * Read by a projection query on the cart row, see {@link com.store.cartOperations.repository.CartRepository#findSummaryById}.
+ * Amounts are in minor units, see {@link com.store.cartOperations.domain.Money}.
+ */
+@Value
+public class CartSummary {
+
+    int id;
+    long revision;
+    int itemCount;
+    @JsonSerialize(using = MoneySerializer.class)
+    long totalCost;
+    @JsonSerialize(using = MoneySerializer.class)
+    long billDiscount;
+    @JsonSerialize(using = MoneySerializer.class)
+    long userDiscount;
+
+    public static CartSummary of(Cart cart) {
+        return new CartSummary(cart.getId(), cart.getRevision(), cart.getItemCount(),
+                cart.getTotalCost(), cart.getBillDiscount(), cart.getUserDiscount());
+    }
+}
@@ -0,0 +1,76 @@
+package com.store.cartOperations.pojo;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Item;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Read model of a cart returned by the cart API: the totals of the cart and one compact line per item, which
+ * references the product by id instead of embedding the product and the user.
+ * Amounts are in minor units, see {@link com.store.cartOperations.domain.Money}; {@link CartViewSerializer} writes
+ * them in major units.
+ * The JPA version is not part of the view: the write-behind store changes it when it writes the cart, without a change
+ * of the contents, so a cached view confirmed by its revision ETag would show an outdated version.
+ */
+@Value
+@JsonSerialize(using = CartViewSerializer.class)
+public class CartView {
+
+    int id;
+    long revision;
+    Integer userId;
+    long totalCost;
+    long billDiscount;
+    long userDiscount;
+    List<Line> items;
+
+    @Value
+    public static class Line {
+        Integer id;
+        Integer productId;
+        int quantity;
+        long price;
+        long discount;
+    }
+
+    /**
+     * Returns the ETag of the cart, which changes with every change of the cart contents.
+     */
+    public static String eTag(long revision) {
+        return "\"" + revision + "\"";
+    }
+
+    /**
+     * This method copies the given cart into a view.
+     * The copy is taken under the mutation lock of the cart, so a cart shared by the write-behind store is not
+     * changed while it is copied, and the view can be serialized after the lock is released.
+     *
+     * @param cart The cart to copy.
+     * @return The view of the cart.
+     */
+    public static CartView of(Cart cart) {
+        Lock lock = cart.mutationLock();
+        lock.lock();
+        try {
+            List<Item> cartItems = cart.getItems() != null ? cart.getItems() : List.of();
+            List<Line> lines = new ArrayList<>(cartItems.size());
+            for (Item item : cartItems) {
+                lines.add(new Line(item.getId(),
+                        item.getProduct() != null ? item.getProduct().getId() : null,
+                        item.getQuantity() != null ? item.getQuantity() : 0,
+                        item.getPrice(),
+                        item.getDiscount()));
+            }
+            return new CartView(cart.getId() != null ? cart.getId() : 0, cart.getRevision(),
+                    cart.getRetailUser() != null ? cart.getRetailUser().getId() : null,
+                    cart.getTotalCost(), cart.getBillDiscount(), cart.getUserDiscount(), lines);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
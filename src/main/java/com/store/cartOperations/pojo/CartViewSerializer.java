@@ -0,0 +1,79 @@
+package com.store.cartOperations.pojo;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.store.cartOperations.domain.Money;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link CartView} field by field to the generator, which streams to the response.
+ * Unlike the bean serializer it neither introspects the view nor looks up a serializer per value, and the field
+ * names are pre-encoded once. Amounts are written in major units, unknown amounts as null.
+ */
+public class CartViewSerializer extends StdSerializer<CartView> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString REVISION = new SerializedString("revision");
+    private static final SerializableString USER_ID = new SerializedString("userId");
+    private static final SerializableString TOTAL_COST = new SerializedString("totalCost");
+    private static final SerializableString BILL_DISCOUNT = new SerializedString("billDiscount");
+    private static final SerializableString USER_DISCOUNT = new SerializedString("userDiscount");
+    private static final SerializableString ITEMS = new SerializedString("items");
+    private static final SerializableString PRODUCT_ID = new SerializedString("productId");
+    private static final SerializableString QUANTITY = new SerializedString("quantity");
+    private static final SerializableString PRICE = new SerializedString("price");
+    private static final SerializableString DISCOUNT = new SerializedString("discount");
+
+    public CartViewSerializer() {
+        super(CartView.class);
+    }
+
+    @Override
+    public void serialize(CartView cart, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(cart.getId());
+        generator.writeFieldName(REVISION);
+        generator.writeNumber(cart.getRevision());
+        writeId(generator, USER_ID, cart.getUserId());
+        writeAmount(generator, TOTAL_COST, cart.getTotalCost());
+        writeAmount(generator, BILL_DISCOUNT, cart.getBillDiscount());
+        writeAmount(generator, USER_DISCOUNT, cart.getUserDiscount());
+        generator.writeFieldName(ITEMS);
+        generator.writeStartArray(cart.getItems(), cart.getItems().size());
+        for (CartView.Line line : cart.getItems()) {
+            generator.writeStartObject();
+            writeId(generator, ID, line.getId());
+            writeId(generator, PRODUCT_ID, line.getProductId());
+            generator.writeFieldName(QUANTITY);
+            generator.writeNumber(line.getQuantity());
+            writeAmount(generator, PRICE, line.getPrice());
+            writeAmount(generator, DISCOUNT, line.getDiscount());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static void writeId(JsonGenerator generator, SerializableString name, Integer id) throws IOException {
+        generator.writeFieldName(name);
+        if (id != null) {
+            generator.writeNumber(id);
+        } else {
+            generator.writeNull();
+        }
+    }
+
+    private static void writeAmount(JsonGenerator generator, SerializableString name, long minorUnits) throws IOException {
+        generator.writeFieldName(name);
+        if (Money.isKnown(minorUnits)) {
+            generator.writeNumber(Money.toDouble(minorUnits));
+        } else {
+            generator.writeNull();
+        }
+    }
+}
@@ -1,10 +1,38 @@
 package com.store.cartOperations.repository;
 
 import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.pojo.CartSummary;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Integer> {
 
+    /**
+     * Returns the cart with its items and user, as the cart operations change it, in one query.
+     */
+    @Override
+    @EntityGraph(Cart.WITH_ITEMS_AND_USER)
+    Optional<Cart> findById(Integer cartId);
+
+    /**
+     * Returns the cart with its items, as it is returned to clients, in one query.
+     */
+    @EntityGraph(Cart.WITH_ITEMS)
+    Optional<Cart> findWithItemsById(Integer cartId);
+
+    /**
+     * Returns the revision of the cart without loading the cart and its items.
+     */
+    @Query("select c.revision from Cart c where c.id = :cartId")
+    Optional<Long> findRevisionById(Integer cartId);
+
+    /**
+     * Returns the item count and totals of the cart from the cart row, without loading the items.
+     */
+    @Query("select new com.store.cartOperations.pojo.CartSummary(c.id, c.revision, c.itemCount, c.totalCost, c.billDiscount, c.userDiscount)"
+            + " from Cart c where c.id = :cartId")
+    Optional<CartSummary> findSummaryById(Integer cartId);
 }
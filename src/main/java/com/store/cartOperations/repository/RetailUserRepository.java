@@ -1,9 +1,47 @@
 package com.store.cartOperations.repository;
 
 import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
 
 public interface RetailUserRepository extends JpaRepository<RetailUser, Integer> {
 
     RetailUser findByName(String name);
+
+    long countByTier(UserTier tier);
+
+    /**
+     * Returns the ids of users with the given tier who registered in the given period.
+     * The query is a range scan on the (tier, registered_on) index.
+     */
+    @Query("select u.id from RetailUser u where u.tier = :tier and u.registeredOn >= :from and u.registeredOn < :to")
+    List<Integer> findIdsByTierRegisteredBetween(@Param("tier") UserTier tier, @Param("from") Date from, @Param("to") Date to, Pageable pageable);
+
+    /**
+     * Returns the ids of users with the given tier who registered at or after the given date.
+     * The query is a range scan on the (tier, registered_on) index.
+     */
+    @Query("select u.id from RetailUser u where u.tier = :tier and u.registeredOn >= :from")
+    List<Integer> findIdsByTierRegisteredFrom(@Param("tier") UserTier tier, @Param("from") Date from, Pageable pageable);
+
+    /**
+     * Returns users stored without a tier, e.g. before the tier was stored.
+     */
+    List<RetailUser> findByTierIsNull(Pageable pageable);
+
+    /**
+     * Sets the tier of the given users. Hibernate evicts the whole user region of the second-level cache after the update.
+     */
+    @Modifying
+    @Transactional
+    @Query("update RetailUser u set u.tier = :tier where u.id in :ids")
+    int updateTier(@Param("ids") List<Integer> ids, @Param("tier") UserTier tier);
 }
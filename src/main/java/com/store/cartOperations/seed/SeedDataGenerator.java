@@ -0,0 +1,257 @@
+package com.store.cartOperations.seed;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.service.DiscountRuleTable;
+import com.store.cartOperations.shard.CartShards;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Fills the product, user, cart and item tables with synthetic data at startup, to reproduce production scale locally.
+ * Enabled with {@code seed.enabled=true}; the sizes are set with the {@code seed.*} properties.
+ * Rows are written with JDBC batches of {@code seed.batch-size}, bypassing JPA so millions of rows load in minutes.
+ * Item counts per cart follow a Pareto distribution, so most carts are small and a few are very large, and products
+ * are picked with a bias towards the first ones to model popular products.
+ * Cart totals and discounts are calculated with the discount rules, so seeded carts look like carts built through the API.
+ * The seeded items reserve no stock, the product quantities are written as they are.
+ * The ids continue after the existing rows and the id sequences are moved past the seeded rows afterwards.
+ * When carts are sharded, every cart and its items are written to the shard of the cart.
+ */
+@Component
+@Slf4j
+@Order(0)
+@ConditionalOnProperty(name = "seed.enabled", havingValue = "true")
+public class SeedDataGenerator implements ApplicationRunner {
+
+    private static final long REGISTRATION_SPAN_MILLIS = TimeUnit.DAYS.toMillis(5 * 365);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DiscountRuleTable discountRuleTable;
+    private final CartShards cartShards;
+    private final SplittableRandom random;
+
+    @Value("${seed.products:1000000}")
+    private int productCount;
+    @Value("${seed.users:500000}")
+    private int userCount;
+    @Value("${seed.carts:100000}")
+    private int cartCount;
+    @Value("${seed.cart-items.max:500}")
+    private int maxItemsPerCart;
+    @Value("${seed.cart-items.skew:1.2}")
+    private double itemCountSkew;
+    @Value("${seed.batch-size:5000}")
+    private int batchSize;
+    @Value("${seed.employee-ratio:0.01}")
+    private double employeeRatio;
+    @Value("${seed.affiliated-ratio:0.05}")
+    private double affiliatedRatio;
+    @Value("${discount.bill}")
+    private double billDiscount;
+    @Value("${discount.bill.rate}")
+    private double billDiscountRate;
+
+    public SeedDataGenerator(JdbcTemplate jdbcTemplate, DiscountRuleTable discountRuleTable, CartShards cartShards,
+                             @Value("${seed.random-seed:42}") long randomSeed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.discountRuleTable = discountRuleTable;
+        this.cartShards = cartShards;
+        this.random = new SplittableRandom(randomSeed);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        if (cartCount > userCount) {
+            log.error("Cannot seed {} carts for {} users, every cart needs its own user", cartCount, userCount);
+            throw new RuntimeException("seed.carts must not exceed seed.users");
+        }
+        log.info("Seeding {} products, {} users and {} carts", productCount, userCount, cartCount);
+        int firstProductId = nextId("product");
+        long[] productPrices = new long[productCount];
+        Category[] productCategories = new Category[productCount];
+        seedProducts(firstProductId, productPrices, productCategories);
+
+        int firstUserId = nextId("retail_user");
+        UserTier[] userTiers = new UserTier[userCount];
+        seedUsers(firstUserId, userTiers);
+
+        long items = seedCarts(nextShardedId("cart"), nextShardedId("item"), firstUserId, userTiers, firstProductId, productPrices, productCategories);
+        log.info("Seeded {} products, {} users, {} carts and {} items in {}ms", productCount, userCount, cartCount, items,
+                System.currentTimeMillis() - start);
+    }
+
+    private void seedProducts(int firstId, long[] prices, Category[] categories) {
+        Category[] allCategories = Category.values();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < productCount; i++) {
+            prices[i] = Money.of(1.0 + random.nextInt(100_000) / 100.0);
+            categories[i] = allCategories[random.nextInt(allCategories.length)];
+            batch.add(new Object[]{firstId + i, "Product " + (firstId + i), categories[i].ordinal(),
+                    Money.toDouble(prices[i]), 1_000_000, false});
+            if (batch.size() == batchSize) {
+                insertProducts(batch);
+            }
+        }
+        insertProducts(batch);
+        restartSequence("product", firstId + productCount);
+    }
+
+    private void insertProducts(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO product (id,name,category,price,available_quantity,is_employee_discount_enabled) VALUES (?,?,?,?,?,?)", batch);
+        batch.clear();
+    }
+
+    private void seedUsers(int firstId, UserTier[] tiers) {
+        long now = System.currentTimeMillis();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < userCount; i++) {
+            double kind = random.nextDouble();
+            RetailUser user = RetailUser.builder()
+                    .isEmployee(kind < employeeRatio)
+                    .isAffiliated(kind >= employeeRatio && kind < employeeRatio + affiliatedRatio)
+                    .registeredOn(new Timestamp(now - random.nextLong(REGISTRATION_SPAN_MILLIS)))
+                    .build();
+            tiers[i] = discountRuleTable.tierOf(user);
+            int id = firstId + i;
+            batch.add(new Object[]{id, "User " + id, "user" + id + "@tmail.com", user.isEmployee(), user.isAffiliated(),
+                    user.getRegisteredOn(), tiers[i].ordinal()});
+            if (batch.size() == batchSize) {
+                insertUsers(batch);
+            }
+        }
+        insertUsers(batch);
+        restartSequence("retail_user", firstId + userCount);
+    }
+
+    private void insertUsers(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO retail_user (id,name,email,is_employee,is_affiliated,registered_on,tier) VALUES (?,?,?,?,?,?,?)", batch);
+        batch.clear();
+    }
+
+    private long seedCarts(int firstCartId, int firstItemId, int firstUserId, UserTier[] userTiers,
+                           int firstProductId, long[] productPrices, Category[] productCategories) {
+        List<Object[]> carts = new ArrayList<>(batchSize);
+        List<Object[]> items = new ArrayList<>(batchSize);
+        int itemId = firstItemId;
+        long itemCount = 0;
+        for (int i = 0; i < cartCount; i++) {
+            int cartId = firstCartId + i;
+            UserTier tier = userTiers[i];
+            int lines = productCount > 0 ? itemCount() : 0;
+            long totalCost = 0;
+            long userDiscount = 0;
+            // Consecutive product picks are distinct, duplicates further apart are rare enough not to matter for load tests.
+            int previousProduct = -1;
+            for (int line = 0; line < lines; line++) {
+                int product = popularProduct();
+                if (product == previousProduct) {
+                    product = (product + 1) % productCount;
+                }
+                previousProduct = product;
+                int quantity = 1 + random.nextInt(5);
+                long cost = Money.times(productPrices[product], quantity);
+                long discount = Money.percentage(cost, discountRuleTable.rate(tier, productCategories[product]));
+                totalCost += cost;
+                userDiscount += discount;
+                items.add(new Object[]{itemId++, "Product " + (firstProductId + product), productCategories[product].ordinal(),
+                        Money.toDecimal(productPrices[product]), quantity, firstProductId + product, cartId, Money.toDecimal(discount)});
+            }
+            itemCount += lines;
+            long billingDiscountTimes = totalCost / Money.of(billDiscountRate);
+            carts.add(new Object[]{cartId, 0, 0, lines, firstUserId + i, Money.toDecimal(totalCost),
+                    Money.toDecimal(billingDiscountTimes * Money.of(billDiscount)), Money.toDecimal(userDiscount)});
+            if (carts.size() == batchSize || items.size() >= batchSize) {
+                insertCarts(carts, items);
+            }
+        }
+        insertCarts(carts, items);
+        restartSequence("cart", firstCartId + cartCount);
+        restartSequence("item", itemId);
+        return itemCount;
+    }
+
+    private void insertCarts(List<Object[]> carts, List<Object[]> items) {
+        if (cartShards.count() == 1) {
+            insertCartRows(carts, items);
+        } else {
+            Map<Integer, List<Object[]>> itemsByShard = items.stream()
+                    .collect(Collectors.groupingBy(item -> cartShards.shardOf((Integer) item[6])));
+            carts.stream().collect(Collectors.groupingBy(cart -> cartShards.shardOf((Integer) cart[0])))
+                    .forEach((shard, shardCarts) -> cartShards.runOnShard(shard,
+                            () -> insertCartRows(shardCarts, itemsByShard.getOrDefault(shard, List.of()))));
+        }
+        carts.clear();
+        items.clear();
+    }
+
+    private void insertCartRows(List<Object[]> carts, List<Object[]> items) {
+        jdbcTemplate.batchUpdate("INSERT INTO cart (id,version,revision,item_count,retail_user_id,total_cost,bill_discount,user_discount) VALUES (?,?,?,?,?,?,?,?)", carts);
+        jdbcTemplate.batchUpdate("INSERT INTO item (id,name,category,price,quantity,product_id,cart_id,discount) VALUES (?,?,?,?,?,?,?,?)", items);
+    }
+
+    /**
+     * Returns a Pareto distributed item count between 1 and {@code seed.cart-items.max}.
+     */
+    private int itemCount() {
+        double count = 1 / Math.pow(1 - random.nextDouble(), 1 / itemCountSkew);
+        return (int) Math.min(maxItemsPerCart, Math.floor(count));
+    }
+
+    /**
+     * Returns a product index biased towards the first products.
+     */
+    private int popularProduct() {
+        double u = random.nextDouble();
+        return (int) (productCount * u * u * u);
+    }
+
+    private int nextId(String table) {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+        return maxId != null ? maxId + 1 : 1;
+    }
+
+    /**
+     * Returns the next id for a cart or item table. When carts are sharded the seeded ids are taken from the id range
+     * of the first shard, after the highest id of that range on any shard, see {@link CartShards#ID_RANGE}.
+     */
+    private int nextShardedId(String table) {
+        if (cartShards.count() == 1) {
+            return nextId(table);
+        }
+        int nextId = 1;
+        for (int shard = 0; shard < cartShards.count(); shard++) {
+            Integer maxId = cartShards.callOnShard(shard, () -> jdbcTemplate.queryForObject(
+                    "SELECT MAX(id) FROM " + table + " WHERE id < ?", Integer.class, CartShards.ID_RANGE));
+            if (maxId != null) {
+                nextId = Math.max(nextId, maxId + 1);
+            }
+        }
+        return nextId;
+    }
+
+    /**
+     * Moves the id sequence of the table past the seeded rows. The pooled-lo id generator hands out the block
+     * starting at the sequence value, see {@link com.store.cartOperations.domain.IdAllocation}.
+     */
+    private void restartSequence(String table, int nextId) {
+        jdbcTemplate.execute("ALTER SEQUENCE " + table + "_seq RESTART WITH " + nextId);
+    }
+}
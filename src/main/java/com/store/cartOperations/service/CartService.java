@@ -1,19 +1,35 @@
 package com.store.cartOperations.service;
 
+import com.store.cartOperations.concurrency.CartConcurrencyControl;
+import com.store.cartOperations.concurrency.DatabasePermits;
 import com.store.cartOperations.domain.Cart;
 import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
 import com.store.cartOperations.domain.Product;
-import com.store.cartOperations.repository.CartRepository;
-import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.expiry.CartExpiry;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.metrics.LatencyTimers;
+import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.pojo.CartSummary;
 import com.store.cartOperations.repository.ProductRepository;
-import jakarta.transaction.Transactional;
+import com.store.cartOperations.shard.CartShards;
+import com.store.cartOperations.store.CartStore;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
@@ -21,39 +37,54 @@ import java.util.List;
 public class CartService {
 
     @Autowired
-    private ItemRepository itemRepository;
-    @Autowired
-    private CartRepository cartRepository;
+    private CartStore cartStore;
     @Autowired
     private ProductRepository productRepository;
     @Autowired
     private DiscountService discountService;
+    @Autowired
+    private CartConcurrencyControl cartConcurrencyControl;
+    @Autowired
+    private DatabasePermits databasePermits;
+    @Autowired
+    private LatencyTimers latencyTimers;
+    @Autowired
+    private InventoryReservations inventoryReservations;
+    @Autowired
+    private CartShards cartShards;
+    @Autowired
+    private CartExpiry cartExpiry;
 
 
     /**
      * This method adds an item to the cart.
      * If the item is already present in the cart, the quantity is updated.
      * If the quantity is less than or equal to 0, an exception is thrown.
+     * The quantity is reserved from the stock of the product; if less is available, an exception is thrown.
      * The total cost of the cart is updated.
      * The discount is applied to the cart and item.
+     * The change runs in its own transaction, guarded by the cart concurrency control.
      *
      * @param cartId    The id of the cart.
      * @param productId The id of the product.
      * @param quantity  The quantity of the product.
      * @return The updated cart.
      */
-    @Transactional
     public Cart addItem(Integer cartId, Integer productId, Integer quantity) {
-        long startTime = System.currentTimeMillis();
-        log.info("Adding item to cart with cart id: " + cartId + " and product id: " + productId + " and quantity: " + quantity);
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "addItem",
+                () -> mutate(cartId, () -> addItemToCart(cartId, productId, quantity)));
+    }
+
+    private Cart addItemToCart(Integer cartId, Integer productId, Integer quantity) {
+        log.debug("Adding item to cart with cart id: {} and product id: {} and quantity: {}", cartId, productId, quantity);
         Cart cart = null;
         try {
-            cart = cartRepository.findById(cartId).orElseThrow(() -> {
-                log.error("Cart not found with id: " + cartId);
+            cart = cartStore.findById(cartId).orElseThrow(() -> {
+                log.error("Cart not found with id: {}", cartId);
                 return new RuntimeException("Cart not found");
             });
             Product product = productRepository.findById(productId).orElseThrow(() -> {
-                log.error("Product not found with id: " + productId);
+                log.error("Product not found with id: {}", productId);
                 return new RuntimeException("Product not found");
             });
 
@@ -61,84 +92,188 @@ public class CartService {
                 log.error("Quantity should be greater than 0");
                 throw new RuntimeException("Quantity should be greater than 0");
             }
-            Item item = Item.builder()
-                    .name(product.getName())
-                    .price(product.getPrice())
-                    .quantity(quantity)
-                    .product(product)
-                    .category(product.getCategory())
-                    .cart(cart)
-                    .build();
-            List<Item> items = cart.getItems();
-            if (items == null) {
-                items = new ArrayList<>();
-                log.debug("Adding first item to cart with id: " + cartId + " and product id: " + productId + " and quantity: " + quantity);
-                items.add(item);
-            } else if (items.stream().anyMatch(i -> i.getProduct().getId().equals(productId))) {
-                item = items.stream().filter(i -> i.getProduct().getId().equals(productId)).findFirst().get();
-                item.setQuantity(item.getQuantity() + quantity);
-                log.debug("Updating item in cart with id: " + cartId + " and product id: " + productId + " and quantity: " + item.getQuantity());
-            } else {
-                log.debug("Adding new item to cart with id: " + cartId + " and product id: " + productId + " and quantity: " + quantity);
-                items.add(item);
-            }
-            item = itemRepository.save(item);
-            cart.setItems(items);
-            cart.setTotalCost((cart.getTotalCost()!=null?cart.getTotalCost():0.0 )+ (item.getPrice() * quantity));
-            cart = cartRepository.save(cart);
+            inventoryReservations.reserve(productId, quantity);
+            Lock lock = cart.mutationLock();
+            lock.lock();
+            try {
+                ensureTotals(cart);
+                Item item = Item.builder()
+                        .name(product.getName())
+                        .price(Money.of(product.getPrice()))
+                        .quantity(quantity)
+                        .reservedQuantity(quantity)
+                        .product(product)
+                        .category(product.getCategory())
+                        .cart(cart)
+                        .build();
+                Item existingItem = cart.findItemByProduct(productId);
+                if (existingItem != null) {
+                    item = existingItem;
+                    item.setQuantity(item.getQuantity() + quantity);
+                    item.setReservedQuantity(item.getReservedQuantity() + quantity);
+                    log.debug("Updating item in cart with id: {} and product id: {} and quantity: {}", cartId, productId, item.getQuantity());
+                } else {
+                    log.debug("Adding new item to cart with id: {} and product id: {} and quantity: {}", cartId, productId, quantity);
+                    cart.addItem(item);
+                }
+                item = cartStore.saveItem(item);
+                cart.indexItem(item);
+                cart.setTotalCost(cart.getTotalCost() + Money.times(item.getPrice(), quantity));
+                contentsChanged(cart);
 
-            cart = discountService.apply(item);
+                cart = discountService.apply(item);
+            } finally {
+                lock.unlock();
+            }
         } catch (NullPointerException ex) {
-            log.error("Cart not found with id: " + cartId);
+            log.error("Cart not found with id: {}", cartId);
             log.error(ex.getMessage(),ex);
             throw new RuntimeException("Server error occurred. Please try again later.");
         }
-    log.info("Time taken to add item to cart: " + (System.currentTimeMillis() - startTime) + "ms");
     return cart;
     }
 
 
+    /**
+     * This method adds several items to the cart in one transaction.
+     * Requests for the same product are merged, and all products are loaded with a single query.
+     * If an item for a product is already present in the cart, its quantity is updated.
+     * If any quantity is less than or equal to 0 or any product is not found, an exception is thrown and nothing is added.
+     * The quantities are reserved from the stock of the products; if any is not available, an exception is thrown and nothing is reserved.
+     * The total cost of the cart is updated once and the discounts are applied once for the whole batch.
+     *
+     * @param cartId       The id of the cart.
+     * @param itemRequests The products and quantities to add.
+     * @return The updated cart.
+     */
+    public Cart addItems(Integer cartId, List<AddItemRequest> itemRequests) {
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "addItems",
+                () -> mutate(cartId, () -> addItemsToCart(cartId, itemRequests)));
+    }
+
+    private Cart addItemsToCart(Integer cartId, List<AddItemRequest> itemRequests) {
+        log.debug("Adding {} items to cart with cart id: {}", itemRequests.size(), cartId);
+        Cart cart = null;
+        try {
+            cart = cartStore.findById(cartId).orElseThrow(() -> {
+                log.error("Cart not found with id: {}", cartId);
+                return new RuntimeException("Cart not found");
+            });
+            Map<Integer, Integer> quantities = new LinkedHashMap<>();
+            for (AddItemRequest itemRequest : itemRequests) {
+                if (itemRequest.getProductId() == null) {
+                    log.error("Product id is missing in add item request for cart with id: {}", cartId);
+                    throw new RuntimeException("Product not found");
+                }
+                if (itemRequest.getQuantity() == null || itemRequest.getQuantity() <= 0) {
+                    log.error("Quantity should be greater than 0");
+                    throw new RuntimeException("Quantity should be greater than 0");
+                }
+                quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+            }
+            Map<Integer, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            if (products.size() != quantities.size()) {
+                log.error("Products not found with ids: {}", quantities.keySet().stream().filter(id -> !products.containsKey(id)).toList());
+                throw new RuntimeException("Product not found");
+            }
+            quantities.forEach(inventoryReservations::reserve);
+            Lock lock = cart.mutationLock();
+            lock.lock();
+            try {
+                ensureTotals(cart);
+                List<Item> changedItems = new ArrayList<>(quantities.size());
+                long addedCost = 0;
+                for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                    Product product = products.get(entry.getKey());
+                    Integer quantity = entry.getValue();
+                    Item item = cart.findItemByProduct(product.getId());
+                    if (item == null) {
+                        item = Item.builder()
+                                .name(product.getName())
+                                .price(Money.of(product.getPrice()))
+                                .quantity(quantity)
+                                .reservedQuantity(quantity)
+                                .product(product)
+                                .category(product.getCategory())
+                                .cart(cart)
+                                .build();
+                        cart.addItem(item);
+                    } else {
+                        item.setQuantity(item.getQuantity() + quantity);
+                        item.setReservedQuantity(item.getReservedQuantity() + quantity);
+                    }
+                    item = cartStore.saveItem(item);
+                    cart.indexItem(item);
+                    changedItems.add(item);
+                    addedCost += Money.times(item.getPrice(), quantity);
+                }
+                log.debug("Added {} lines to cart with id: {} costing: {}", changedItems.size(), cartId, addedCost);
+                cart.setTotalCost(cart.getTotalCost() + addedCost);
+                contentsChanged(cart);
+
+                cart = discountService.apply(cart, changedItems);
+            } finally {
+                lock.unlock();
+            }
+        } catch (NullPointerException ex) {
+            log.error("Cart not found with id: {}", cartId);
+            log.error(ex.getMessage(),ex);
+            throw new RuntimeException("Server error occurred. Please try again later.");
+        }
+        return cart;
+    }
+
     /**
      * This method removes an item from the cart.
      * If the item is not found in the cart, an exception is thrown.
-     * The total cost of the cart is updated.
+     * The total cost and the user discount of the cart are reduced by the cost and the discount of the item.
+     * The reserved quantity of the item is given back to the stock of the product.
      * The discount is applied to the cart.
      *
      * @param cartId The id of the cart.
      * @param itemId The id of the item.
      * @return The updated cart.
      */
-    @Transactional
     public Cart removeItem(Integer cartId, Integer itemId) {
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "removeItem",
+                () -> mutate(cartId, () -> removeItemFromCart(cartId, itemId)));
+    }
 
-        long startTime = System.currentTimeMillis();
-        log.info("Removing item from cart with cart id: " + cartId + " and item id: " + itemId);
+    private Cart removeItemFromCart(Integer cartId, Integer itemId) {
+        log.debug("Removing item from cart with cart id: {} and item id: {}", cartId, itemId);
         Cart cart = null;
         try {
-            cart = cartRepository.findById(cartId).orElseThrow(() -> {
-                log.error("Cart not found with id: " + cartId);
+            cart = cartStore.findById(cartId).orElseThrow(() -> {
+                log.error("Cart not found with id: {}", cartId);
                 return new RuntimeException("Cart not found");
             });
-            Item item = itemRepository.findById(itemId).orElseThrow(() -> {
-                log.error("Item not found with id: " + itemId);
-                return new RuntimeException("Item not found");
-            });
+            Lock lock = cart.mutationLock();
+            lock.lock();
+            try {
+                ensureTotals(cart);
+                Item item = findItem(cart, itemId);
 
-            Integer quantity = item.getQuantity();
-            cart.setTotalCost(cart.getTotalCost() - (item.getPrice() * quantity));
-            log.debug("Updating total cost of cart with id: " + cartId + " and totalCost: " + cart.getTotalCost());
-            cart.getItems().remove(item);
-            log.debug("Removing item from cart with id: " + cartId + " and item id: " + itemId);
-            itemRepository.delete(item);
-            cart = cartRepository.save(cart);
-            itemRepository.delete(item);
-            cart = discountService.apply(cart);
+                int quantity = item.getQuantity();
+                inventoryReservations.release(item.getProduct().getId(), item.getReservedQuantity());
+                cart.setTotalCost(cart.getTotalCost() - Money.times(item.getPrice(), quantity));
+                if (Money.isKnown(item.getDiscount())) {
+                    cart.setUserDiscount(cart.getUserDiscount() - item.getDiscount());
+                }
+                log.debug("Updating total cost of cart with id: {} and totalCost: {}", cartId, cart.getTotalCost());
+                cart.removeItem(item);
+                log.debug("Removing item from cart with id: {} and item id: {}", cartId, itemId);
+                cartStore.deleteItem(item);
+                contentsChanged(cart);
+                cart = discountService.apply(cart);
+            } finally {
+                lock.unlock();
+            }
         }catch (NullPointerException ex) {
-            log.error("Cart not found with id: " + cartId);
+            log.error("Cart not found with id: {}", cartId);
             log.error(ex.getMessage(),ex);
             throw new RuntimeException("Server error occurred. Please try again later.");
         }
-        log.info("Time taken to remove item from cart: " + (System.currentTimeMillis() - startTime) + "ms");
         return cart;
     }
 
@@ -146,6 +281,8 @@ public class CartService {
      * This method updates the quantity of an item in the cart.
      * If the item is not found in the cart, an exception is thrown.
      * If the quantity is less than or equal to 0, an exception is thrown.
+     * An increase is reserved from the stock of the product; if less is available, an exception is thrown.
+     * A decrease is given back to the stock, as far as it was reserved.
      * The total cost of the cart is updated.
      * The discount is applied to the cart.
      *
@@ -153,56 +290,156 @@ public class CartService {
      * @param quantity The quantity of the item.
      * @return The updated cart.
      */
-    @Transactional
     public Cart updateItemQuantity(Integer cartId, Integer itemId, int quantity) {
-        long startTime = System.currentTimeMillis();
-        log.info("Updating item quantity with item id: " + itemId + " and quantity: " + quantity);
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "updateItemQuantity",
+                () -> mutate(cartId, () -> updateItemQuantityInCart(cartId, itemId, quantity)));
+    }
+
+    private Cart updateItemQuantityInCart(Integer cartId, Integer itemId, int quantity) {
+        log.debug("Updating item quantity with item id: {} and quantity: {}", itemId, quantity);
         Cart cart = null;
         try {
-            Item item = itemRepository.findById(itemId).orElseThrow(() -> {
-                log.error("Item not found with id: " + itemId);
-                return new RuntimeException("Item not found");
-            });
-            Integer previousQuantity = item.getQuantity();
-            cart = cartRepository.findById(cartId).orElseThrow(() -> {
-                log.error("Cart not found with id: " + cartId);
+            cart = cartStore.findById(cartId).orElseThrow(() -> {
+                log.error("Cart not found with id: {}", cartId);
                 return new RuntimeException("Cart not found");
             });
             if (quantity <= 0) {
                 log.error("Quantity should be greater than 0");
                 throw new RuntimeException("Quantity should be greater than 0");
             }
-            Integer quantityDifference = quantity - previousQuantity;
-            log.debug("Quantity difference - " + quantityDifference);
-            cart.setTotalCost(cart.getTotalCost() + (item.getPrice() * quantityDifference));
-            log.debug("Updating total cost of cart with id: " + cart.getId() + " and totalCost: " + cart.getTotalCost());
-            item.setQuantity(quantity);
-            item = itemRepository.save(item);
-            cart = discountService.apply(item);
-            cart = cartRepository.save(cart);
+            Lock lock = cart.mutationLock();
+            lock.lock();
+            try {
+                ensureTotals(cart);
+                Item item = findItem(cart, itemId);
+                int previousQuantity = item.getQuantity();
+                int quantityDifference = quantity - previousQuantity;
+                log.debug("Quantity difference - {}", quantityDifference);
+                if (quantityDifference > 0) {
+                    inventoryReservations.reserve(item.getProduct().getId(), quantityDifference);
+                    item.setReservedQuantity(item.getReservedQuantity() + quantityDifference);
+                } else if (item.getReservedQuantity() > quantity) {
+                    // The part which was never reserved goes first, so no more is given back than was taken.
+                    inventoryReservations.release(item.getProduct().getId(), item.getReservedQuantity() - quantity);
+                    item.setReservedQuantity(quantity);
+                }
+                cart.setTotalCost(cart.getTotalCost() + Money.times(item.getPrice(), quantityDifference));
+                log.debug("Updating total cost of cart with id: {} and totalCost: {}", cart.getId(), cart.getTotalCost());
+                item.setQuantity(quantity);
+                item = cartStore.saveItem(item);
+                contentsChanged(cart);
+                cart = discountService.apply(item);
+            } finally {
+                lock.unlock();
+            }
         } catch (NullPointerException ex) {
             log.error(ex.getMessage(),ex);
             throw new RuntimeException("Server error occurred. Please try again later.");
         }
-        log.info("Time taken to update item quantity: " + (System.currentTimeMillis() - startTime) + "ms");
         return cart;
     }
 
     /**
      * This method returns the cart with the given id.
      * If the cart is not found, an exception is thrown.
+     * It runs read-only, so it is served by the replica when one is configured.
+     * When carts are sharded, only the shard of the cart is read.
      *
      * @param cartId The id of the cart.
      * @return The cart.
      */
-    @Transactional(Transactional.TxType.SUPPORTS)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Cart getCart(Integer cartId) {
-        long startTime = System.currentTimeMillis();
-        Cart cart = cartRepository.findById(cartId).orElseThrow(() -> {
-            log.error("Cart not found with id: " + cartId);
-            return new RuntimeException("Cart not found");
-        });
-        log.info("Time taken to get cart: " + (System.currentTimeMillis() - startTime) + "ms");
-        return cart;
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "getCart",
+                () -> cartShards.call(cartId, () -> databasePermits.call(() -> cartStore.findForRead(cartId))).orElseThrow(() -> {
+                    log.error("Cart not found with id: {}", cartId);
+                    return new RuntimeException("Cart not found");
+                }));
+    }
+
+    /**
+     * This method returns the revision of the cart with the given id, without loading the cart and its items.
+     * It lets conditional requests be answered without reading the cart.
+     *
+     * @param cartId The id of the cart.
+     * @return The revision of the cart, or empty if the cart is not found.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Optional<Long> getCartRevision(Integer cartId) {
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "getCartRevision",
+                () -> cartShards.call(cartId, () -> databasePermits.call(() -> cartStore.findRevision(cartId))));
+    }
+
+    /**
+     * This method returns the summary of the cart with the given id: item count and totals.
+     * It reads only the cart row, so it takes the same time for any number of items.
+     * If the cart is not found, an exception is thrown.
+     *
+     * @param cartId The id of the cart.
+     * @return The summary of the cart.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CartSummary getCartSummary(Integer cartId) {
+        return latencyTimers.record(LatencyTimers.CART_OPERATION, "getCartSummary",
+                () -> cartShards.call(cartId, () -> databasePermits.call(() -> cartStore.findSummary(cartId))).orElseThrow(() -> {
+                    log.error("Cart not found with id: {}", cartId);
+                    return new RuntimeException("Cart not found");
+                }));
+    }
+
+    /**
+     * This method runs a mutation of the cart on the shard of the cart, guarded by the cart concurrency control.
+     * It first waits until the cart store can take the change, before the cart is locked, and returns once the cart
+     * store made the change durable, after the cart is released.
+     *
+     * @param cartId   The id of the cart.
+     * @param mutation The mutation, which loads the cart itself.
+     * @return The updated cart.
+     */
+    private Cart mutate(Integer cartId, Supplier<Cart> mutation) {
+        cartStore.awaitCapacity(cartId);
+        return cartStore.callDurable(() -> cartShards.call(cartId, () -> cartConcurrencyControl.execute(cartId, mutation)));
+    }
+
+    /**
+     * This method returns the item with the given id from the cart.
+     * If the item is not part of the cart, an exception is thrown.
+     *
+     * @param cart   The cart holding the item.
+     * @param itemId The id of the item.
+     * @return The item.
+     */
+    private Item findItem(Cart cart, Integer itemId) {
+        Item item = itemId != null ? cart.findItem(itemId) : null;
+        if (item == null) {
+            log.error("Item not found with id: {} in cart with id: {}", itemId, cart.getId());
+            throw new RuntimeException("Item not found");
+        }
+        return item;
+    }
+
+    /**
+     * This method records a change of the cart contents, incrementing the revision, updating the item count
+     * and the last activity, which postpones the expiry of the cart.
+     *
+     * @param cart The changed cart.
+     */
+    private void contentsChanged(Cart cart) {
+        cart.setRevision(cart.getRevision() + 1);
+        cart.setItemCount(cart.getItems() != null ? cart.getItems().size() : 0);
+        cartExpiry.touch(cart);
+    }
+
+    /**
+     * This method recalculates the running totals of the cart from its items if they were never stored,
+     * so the operations can adjust them by the change of a single item.
+     *
+     * @param cart The cart whose totals are to be checked.
+     */
+    private void ensureTotals(Cart cart) {
+        if (!Money.isKnown(cart.getTotalCost()) || !Money.isKnown(cart.getUserDiscount())) {
+            log.warn("Running totals are missing in the cart with id: {}, recalculating them from the items", cart.getId());
+            discountService.recalculate(cart);
+        }
     }
 }
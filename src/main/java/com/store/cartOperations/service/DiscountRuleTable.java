@@ -0,0 +1,92 @@
+package com.store.cartOperations.service;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Discount settings compiled at startup into a table of discount rates indexed by user tier and item category.
+ * Non discounted categories have a rate of 0 for every tier.
+ * The loyalty cutoff, the registration time before which a user counts as loyal, is refreshed once a day.
+ */
+@Component
+@Slf4j
+public class DiscountRuleTable {
+
+    private final double[][] rates;
+    private final int loyaltyPeriod;
+    private volatile long loyaltyCutoff;
+
+    public DiscountRuleTable(@Value("${category.noDiscount}") List<String> nonDiscountedItemCategories,
+                             @Value("${discount.user.employee}") double employeeDiscount,
+                             @Value("${discount.user.affiliated}") double affiliatedDiscount,
+                             @Value("${discount.loyalty}") double loyaltyDiscount,
+                             @Value("${discount.loyalty.period}") int loyaltyPeriod) {
+        this.loyaltyPeriod = loyaltyPeriod;
+        double[] tierRates = new double[UserTier.values().length];
+        tierRates[UserTier.EMPLOYEE.ordinal()] = employeeDiscount / 100;
+        tierRates[UserTier.AFFILIATED.ordinal()] = affiliatedDiscount / 100;
+        tierRates[UserTier.LOYAL.ordinal()] = loyaltyDiscount / 100;
+
+        Set<Category> nonDiscounted = EnumSet.noneOf(Category.class);
+        for (String category : nonDiscountedItemCategories) {
+            if (!category.isBlank()) {
+                nonDiscounted.add(Category.valueOf(category.trim()));
+            }
+        }
+        rates = new double[UserTier.values().length][Category.values().length];
+        for (UserTier tier : UserTier.values()) {
+            for (Category category : Category.values()) {
+                rates[tier.ordinal()][category.ordinal()] = nonDiscounted.contains(category) ? 0.0 : tierRates[tier.ordinal()];
+            }
+        }
+        refreshLoyaltyCutoff();
+        log.info("Compiled discount rules with non discounted categories - {}", nonDiscounted);
+    }
+
+    /**
+     * Moves the loyalty cutoff to the start of today minus the loyalty period.
+     */
+    @Scheduled(cron = "${discount.loyalty.refresh-cron:0 0 0 * * *}")
+    public void refreshLoyaltyCutoff() {
+        loyaltyCutoff = LocalDate.now().minusYears(loyaltyPeriod).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Returns the discount rate, as a fraction of the item cost, for the given tier and category.
+     */
+    public double rate(UserTier tier, Category category) {
+        return rates[tier.ordinal()][category.ordinal()];
+    }
+
+    /**
+     * Returns the discount tier of the user. Employees take precedence over affiliated users, and both over loyal users.
+     */
+    public UserTier tierOf(RetailUser user) {
+        if (user.isEmployee()) {
+            return UserTier.EMPLOYEE;
+        } else if (user.isAffiliated()) {
+            return UserTier.AFFILIATED;
+        } else if (user.getRegisteredOn().getTime() < loyaltyCutoff) {
+            return UserTier.LOYAL;
+        }
+        return UserTier.NONE;
+    }
+
+    /**
+     * Returns the loyalty cutoff in epoch milliseconds. Users registered before it are loyal.
+     */
+    public long getLoyaltyCutoff() {
+        return loyaltyCutoff;
+    }
+}
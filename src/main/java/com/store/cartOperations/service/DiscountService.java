@@ -2,9 +2,11 @@ package com.store.cartOperations.service;
 
 import com.store.cartOperations.domain.Cart;
 import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
 import com.store.cartOperations.domain.RetailUser;
-import com.store.cartOperations.repository.CartRepository;
-import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.metrics.LatencyTimers;
+import com.store.cartOperations.store.CartStore;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,9 +14,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.util.Date;
 import java.util.List;
 
 @Service
@@ -23,32 +22,24 @@ import java.util.List;
 public class DiscountService {
 
     @Value("${discount.bill}")
-    private Double billDiscount;
+    private double billDiscount;
     @Value("${discount.bill.rate}")
-    private Double billDiscountRate;
-    @Value("${category.noDiscount}")
-    //@Value("#{'${category.noDiscount}'.split(',')}")
-    private List<String> nonDiscountedItemCategories;
-    @Value("${discount.user.employee}")
-    private Double employeeDiscount;
-    @Value("${discount.user.affiliated}")
-    private Double affiliatedDiscount;
-    @Value("${discount.loyalty}")
-    private Double loyaltyDiscount;
-    @Value("${discount.loyalty.period}")
-    private Integer loyaltyPeriod;
+    private double billDiscountRate;
 
     @Autowired
-    private CartRepository cartRepository;
+    private CartStore cartStore;
     @Autowired
-    private ItemRepository itemRepository;
+    private DiscountRuleTable discountRuleTable;
+    @Autowired
+    private LatencyTimers latencyTimers;
 
     /**
      * This method applies various discounts to the given cart.
-     * It first checks if the total cost of the cart is less than 0, and if so, throws a RuntimeException.
+     * It first checks if the running totals of the cart are known, and if not, recalculates them from the items.
+     * It then checks if the total cost of the cart is less than 0, and if so, throws a RuntimeException.
      * It then calculates the billing discount based on the total cost of the cart and the bill discount rate, and sets this value in the cart.
-     * It also calculates the user discount by summing up the discounts of all items in the cart, and sets this value in the cart.
-     * Finally, it saves the updated cart in the repository and returns it.
+     * The user discount of the cart is a running total which is adjusted whenever an item discount changes, so it is not summed up here.
+     * Finally, it saves the updated cart in the cart store and returns it.
      *
      * @param cart The cart to which discounts are to be applied.
      * @return The updated cart with the applied discounts.
@@ -57,20 +48,43 @@ public class DiscountService {
 
     @Transactional(Transactional.TxType.MANDATORY)
     public Cart apply(Cart cart) {
-        Long start = System.currentTimeMillis();
-        log.info("Applying discounts to cart for cartId - " + cart.getId());
+        return latencyTimers.record(LatencyTimers.DISCOUNT_APPLY, "cart", () -> applyToCart(cart));
+    }
+
+    private Cart applyToCart(Cart cart) {
+        log.debug("Applying discounts to cart for cartId - {}", cart.getId());
+        if (!Money.isKnown(cart.getTotalCost()) || !Money.isKnown(cart.getUserDiscount())) {
+            log.warn("Running totals are missing in the cart with id - {}, recalculating them from the items", cart.getId());
+            recalculate(cart);
+        }
         if (cart.getTotalCost() < 0) {
-            log.error("Total cost is missing in the cart with id - " + cart.getId());
+            log.error("Total cost is missing in the cart with id - {}", cart.getId());
             throw new RuntimeException("Total cost is missing");
         }
-        long billingDiscountTimes = (long) (cart.getTotalCost() / billDiscountRate);
-        cart.setBillDiscount(billingDiscountTimes * billDiscount);
-        Double userDiscount = cart.getItems().stream().map(x -> x.getDiscount()!=null?x.getDiscount():0.0).reduce(0.0, Double::sum);
-        log.debug("User discount applied to cart with id - " + cart.getId() + " is - " + userDiscount);
+        long billingDiscountTimes = cart.getTotalCost() / Money.of(billDiscountRate);
+        cart.setBillDiscount(billingDiscountTimes * Money.of(billDiscount));
+        log.debug("User discount applied to cart with id - {} is - {}", cart.getId(), cart.getUserDiscount());
+        return cartStore.save(cart);
+    }
+
+    /**
+     * This method recalculates the running totals of the cart, total cost and user discount, from all of its items.
+     * It is only a fallback for carts whose totals were never stored, the cart operations otherwise adjust the totals
+     * by the change of the affected item.
+     *
+     * @param cart The cart whose totals are to be recalculated.
+     */
+    public void recalculate(Cart cart) {
+        long totalCost = 0;
+        long userDiscount = 0;
+        if (cart.getItems() != null) {
+            for (Item item : cart.getItems()) {
+                totalCost += Money.times(item.getPrice(), item.getQuantity());
+                userDiscount += Money.isKnown(item.getDiscount()) ? item.getDiscount() : 0;
+            }
+        }
+        cart.setTotalCost(totalCost);
         cart.setUserDiscount(userDiscount);
-        cart = cartRepository.save(cart);
-        log.info("Discounts applied to cart with id - " + cart.getId() + " in " + (System.currentTimeMillis() - start) + " ms");
-        return cart;
     }
 
     // Generate documentation for the apply method
@@ -80,7 +94,7 @@ public class DiscountService {
      * It first checks if the item is attached to a cart, and if not, throws a RuntimeException.
      * It then checks if the user is attached to the cart, and if not, throws a RuntimeException.
      * It then calculates the discount based on the user type and the item category, and sets this value in the item.
-     * Finally, it saves the updated item in the repository, calls apply method to calculate discounts at cart and returns the updated cart.
+     * Finally, it saves the updated item in the cart store, calls apply method to calculate discounts at cart and returns the updated cart.
      *
      * @param item The item to which discounts are to be applied.
      * @return The updated cart with the applied discounts.
@@ -88,41 +102,74 @@ public class DiscountService {
      */
     @Transactional(Transactional.TxType.MANDATORY)
     public Cart apply(Item item) {
-        long start = System.currentTimeMillis();
-        log.info("Applying discounts to item for itemId - " + item.getId());
-        Double discount = 0.0;
+        return latencyTimers.record(LatencyTimers.DISCOUNT_APPLY, "item", () -> applyToItem(item));
+    }
+
+    private Cart applyToItem(Item item) {
+        log.debug("Applying discounts to item for itemId - {}", item.getId());
         Cart cart = item.getCart();
         if (cart == null) {
-            log.error("Item is not attached with cart for item id - " + item.getId());
+            log.error("Item is not attached with cart for item id - {}", item.getId());
             throw new RuntimeException("Item is not attached to cart");
         }
+        discount(cart, item);
+        return apply(cart);
+    }
+
+    /**
+     * This method applies item discounts to a batch of items of the same cart and then applies the cart discounts once.
+     * It is used when several lines are changed together so the cart level discount is not recalculated per item.
+     *
+     * @param cart  The cart the items belong to.
+     * @param items The changed items of the cart.
+     * @return The updated cart with the applied discounts.
+     * @throws RuntimeException if the user is not attached to the cart.
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public Cart apply(Cart cart, List<Item> items) {
+        return latencyTimers.record(LatencyTimers.DISCOUNT_APPLY, "items", () -> applyToItems(cart, items));
+    }
+
+    private Cart applyToItems(Cart cart, List<Item> items) {
+        log.debug("Applying discounts to {} items of cart with id - {}", items.size(), cart.getId());
+        for (Item item : items) {
+            discount(cart, item);
+        }
+        return apply(cart);
+    }
+
+    /**
+     * This method calculates the discount of a single item from the rule table, based on the stored user tier and the item category.
+     * The tier is only derived from the user when it has not been stored yet.
+     * If the discount changed, it sets it on the item and on the matching item of the cart, and saves the item in the cart store.
+     * The user discount of the cart is adjusted by the difference between the new and the previous item discount.
+     *
+     * @param cart The cart the item belongs to.
+     * @param item The item to which the discount is to be applied.
+     * @return The saved item.
+     * @throws RuntimeException if the user is not attached to the cart.
+     */
+    private Item discount(Cart cart, Item item) {
         RetailUser user = cart.getRetailUser();
 
         if (user == null) {
-            log.error("User is not attached to cart with id - " + cart.getId());
+            log.error("User is not attached to cart with id - {}", cart.getId());
             throw new RuntimeException("User is not attached to cart");
         }
-        if (!nonDiscountedItemCategories.contains(item.getCategory().name())) {
-            log.debug("Item with id - " + item.getId() + " is not in non discounted category");
-            Date loyaltyPeriodStartBefore = Date.from(LocalDate.now().minusYears(loyaltyPeriod).atStartOfDay(ZoneId.systemDefault()).toInstant());
-            Double itemTotalCost = item.getPrice() * item.getQuantity();
-            if (user.isEmployee()) {
-                discount += (itemTotalCost * employeeDiscount / 100);
-            } else if (user.isAffiliated()) {
-                discount += (itemTotalCost * affiliatedDiscount / 100);
-            } else if (user.getRegisteredOn().before(loyaltyPeriodStartBefore)) {
-                discount += (itemTotalCost * loyaltyDiscount / 100);
-            }
+        UserTier tier = user.getTier() != null ? user.getTier() : discountRuleTable.tierOf(user);
+        double rate = discountRuleTable.rate(tier, item.getCategory());
+        long previousDiscount = Money.isKnown(item.getDiscount()) ? item.getDiscount() : 0;
+        long discount = Money.percentage(Money.times(item.getPrice(), item.getQuantity()), rate);
+        if (discount != previousDiscount) {
             item.setDiscount(discount);
-            log.debug("Discount applied to item with id - " + item.getId() + " is - " + discount);
-            item = itemRepository.save(item);
-            Item finalItem = item;
-            Double finalDiscount = discount;
-            cart.getItems().stream().filter(x -> x.getId().equals(finalItem.getId())).findFirst().ifPresent(x -> x.setDiscount(finalDiscount));
+            cart.setUserDiscount(cart.getUserDiscount() + discount - previousDiscount);
+            log.debug("Discount applied to item with id - {} is - {}", item.getId(), discount);
+            item = cartStore.saveItem(item);
+            Item cartItem = item.getId() != null ? cart.findItem(item.getId()) : null;
+            if (cartItem != null) {
+                cartItem.setDiscount(discount);
+            }
         }
-
-        cart = apply(cart);
-        log.info("Discounts applied to item with id - " + item.getId() + " in " + (System.currentTimeMillis() - start) + " ms");
-        return cart;
+        return item;
     }
 }
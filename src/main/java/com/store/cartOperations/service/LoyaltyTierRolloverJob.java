@@ -0,0 +1,113 @@
+package com.store.cartOperations.service;
+
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.store.CartStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Moves users who passed their loyalty anniversary to the LOYAL tier, and loyal users who registered after the cutoff,
+ * e.g. because the loyalty period was extended, back to NONE.
+ * Each run only scans users registered between the cutoff of the previous run and the current cutoff for promotions,
+ * and updates them in batches of {@code discount.loyalty.rollover.batch-size}, one transaction per batch.
+ * The first run after startup scans from the beginning to pick up users missed while the service was down, and first
+ * stores the tier of users saved without one, so both scans only match users by their tier.
+ * Carts held in memory by the cart store get the new tier of their user, see {@link CartStore#userTierChanged}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoyaltyTierRolloverJob {
+
+    private final RetailUserRepository retailUserRepository;
+    private final DiscountRuleTable discountRuleTable;
+    private final CartStore cartStore;
+
+    @Value("${discount.loyalty.rollover.batch-size:1000}")
+    private int batchSize;
+
+    private volatile long lastCutoff = 0;
+    // A lock rather than a synchronized method, so a run on a virtual thread is not pinned while it waits for the database.
+    private final ReentrantLock rolloverLock = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${discount.loyalty.rollover.cron:0 5 0 * * *}")
+    public void rollOver() {
+        rolloverLock.lock();
+        try {
+            if (lastCutoff == 0) {
+                storeMissingTiers();
+            }
+            rollOverSinceLastCutoff();
+        } finally {
+            rolloverLock.unlock();
+        }
+    }
+
+    private void rollOverSinceLastCutoff() {
+        long start = System.currentTimeMillis();
+        long cutoff = discountRuleTable.getLoyaltyCutoff();
+        Date from = new Date(lastCutoff);
+        Date to = new Date(cutoff);
+        int promoted = moveTier(() -> retailUserRepository.findIdsByTierRegisteredBetween(UserTier.NONE, from, to,
+                PageRequest.of(0, batchSize)), UserTier.LOYAL);
+        int demoted = moveTier(() -> retailUserRepository.findIdsByTierRegisteredFrom(UserTier.LOYAL, to,
+                PageRequest.of(0, batchSize)), UserTier.NONE);
+        lastCutoff = cutoff;
+        log.info("Moved {} users to the loyal tier and {} users out of it in {}ms", promoted, demoted,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Moves the users returned by the query to the tier, a batch at a time. The moved users no longer match the query,
+     * so it always reads the first page.
+     */
+    private int moveTier(Supplier<List<Integer>> nextBatch, UserTier tier) {
+        int updated = 0;
+        List<Integer> ids;
+        do {
+            ids = nextBatch.get();
+            if (!ids.isEmpty()) {
+                updated += retailUserRepository.updateTier(ids, tier);
+                cartStore.userTierChanged(ids, tier);
+            }
+        } while (ids.size() == batchSize);
+        return updated;
+    }
+
+    /**
+     * Stores the tier of users saved without one, derived with the same rules as for new users.
+     */
+    private void storeMissingTiers() {
+        int updated = 0;
+        List<RetailUser> users;
+        do {
+            users = retailUserRepository.findByTierIsNull(PageRequest.of(0, batchSize));
+            Map<UserTier, List<Integer>> idsByTier = users.stream().collect(Collectors.groupingBy(discountRuleTable::tierOf,
+                    () -> new EnumMap<>(UserTier.class), Collectors.mapping(RetailUser::getId, Collectors.toList())));
+            for (Map.Entry<UserTier, List<Integer>> entry : idsByTier.entrySet()) {
+                updated += retailUserRepository.updateTier(entry.getValue(), entry.getKey());
+                cartStore.userTierChanged(entry.getValue(), entry.getKey());
+            }
+        } while (users.size() == batchSize);
+        if (updated > 0) {
+            log.info("Stored the tier of {} users saved without one", updated);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.store.cartOperations.service;
+
+import com.store.cartOperations.domain.RetailUser;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener which stores the discount tier of a retail user whenever the user is inserted or updated.
+ * Hibernate obtains the listener from the Spring context, so the tier is derived with the same rules as the discounts.
+ */
+@Component
+public class RetailUserTierListener {
+
+    @Autowired(required = false)
+    private DiscountRuleTable discountRuleTable;
+
+    @PrePersist
+    @PreUpdate
+    public void assignTier(RetailUser user) {
+        if (discountRuleTable != null && user.getRegisteredOn() != null) {
+            user.setTier(discountRuleTable.tierOf(user));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.store.cartOperations.shard;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Moves carts with their items to the shard their id belongs to, after shards were added or removed, or after carts
+ * were inserted into the first shard without going through {@link CartShards}.
+ * Each shard is scanned in pages of {@code cart.shards.batch-size} cart ids; the misplaced carts of a page are written
+ * to their shard before they are deleted from the old one, so a rebalance which was cut short is finished by the next.
+ * A cart is not found while it waits to be moved and a change made while it is copied is lost, so the rebalance runs
+ * before cart requests are served, see {@link ShardRebalanceLifecycle}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class CartRebalancer {
+
+    private final CartShards cartShards;
+    private final ShardDataSources shardDataSources;
+    private final Counter movedCarts;
+    private final int batchSize;
+
+    public CartRebalancer(CartShards cartShards, ShardDataSources shardDataSources, MeterRegistry meterRegistry,
+                          @Value("${cart.shards.batch-size:1000}") int batchSize) {
+        this.cartShards = cartShards;
+        this.shardDataSources = shardDataSources;
+        this.batchSize = batchSize;
+        this.movedCarts = Counter.builder("cart.shards.moved")
+                .description("Carts moved to another shard by a rebalance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Moves every cart which is not on its shard.
+     *
+     * @return The number of carts moved.
+     */
+    public long rebalance() {
+        long start = System.currentTimeMillis();
+        long moved = 0;
+        for (int source = 0; source < shardDataSources.count(); source++) {
+            int shard = source;
+            JdbcTemplate jdbcTemplate = shardDataSources.jdbcTemplate(source);
+            int afterId = 0;
+            List<Integer> cartIds;
+            while (!(cartIds = jdbcTemplate.queryForList("SELECT id FROM cart WHERE id > ? ORDER BY id LIMIT ?",
+                    Integer.class, afterId, batchSize)).isEmpty()) {
+                afterId = cartIds.get(cartIds.size() - 1);
+                Map<Integer, List<Integer>> misplaced = cartIds.stream()
+                        .filter(cartId -> cartShards.shardOf(cartId) != shard)
+                        .collect(Collectors.groupingBy(cartShards::shardOf));
+                for (Map.Entry<Integer, List<Integer>> entry : misplaced.entrySet()) {
+                    move(source, entry.getKey(), entry.getValue());
+                    moved += entry.getValue().size();
+                }
+            }
+        }
+        movedCarts.increment(moved);
+        log.info("Moved {} carts between {} shards in {}ms", moved, shardDataSources.count(),
+                System.currentTimeMillis() - start);
+        return moved;
+    }
+
+    private void move(int source, int target, List<Integer> cartIds) {
+        JdbcTemplate sourceJdbc = shardDataSources.jdbcTemplate(source);
+        JdbcTemplate targetJdbc = shardDataSources.jdbcTemplate(target);
+        List<Map<String, Object>> carts = ShardRows.whereIn(sourceJdbc, "cart", "id", cartIds);
+        List<Map<String, Object>> items = ShardRows.whereIn(sourceJdbc, "item", "cart_id", cartIds);
+        shardDataSources.transactionTemplate(target).executeWithoutResult(status -> {
+            ShardRows.merge(targetJdbc, "cart", carts);
+            ShardRows.merge(targetJdbc, "item", items);
+        });
+        String in = ShardRows.placeholders(cartIds.size());
+        shardDataSources.transactionTemplate(source).executeWithoutResult(status -> {
+            sourceJdbc.update("DELETE FROM item WHERE cart_id IN (" + in + ")", cartIds.toArray());
+            sourceJdbc.update("DELETE FROM cart WHERE id IN (" + in + ")", cartIds.toArray());
+        });
+        log.debug("Moved carts {} from shard {} to shard {}", cartIds, source, target);
+    }
+}
@@ -0,0 +1,105 @@
+package com.store.cartOperations.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Assigns carts to shards by a hash of the cart id and binds the shard of a cart to the current thread, so the
+ * {@link ShardRoutingDataSource} hands out connections to it. The first shard is the database configured with
+ * {@code spring.datasource.*}, the others are listed in {@code cart.shards.urls}; without it there is one shard and
+ * nothing is bound.
+ * Carts are spread with a jump consistent hash: adding a shard moves only the carts which belong to the new shard,
+ * about one in the new number of shards, see {@link CartRebalancer}.
+ */
+@Component
+@Slf4j
+public class CartShards {
+
+    /**
+     * Size of the id range of a shard. The cart and item sequences of shard k start at {@code k * ID_RANGE}, so the
+     * id blocks handed out by any shard are unique and carts keep their ids when they are moved between shards.
+     */
+    public static final int ID_RANGE = 100_000_000;
+    public static final int MAX_SHARDS = Integer.MAX_VALUE / ID_RANGE;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final int count;
+
+    public CartShards(@Value("${cart.shards.urls:}") List<String> urls) {
+        this.count = 1 + (int) urls.stream().filter(url -> !url.isBlank()).count();
+        if (count > MAX_SHARDS) {
+            log.error("{} cart shards configured, at most {} are supported", count, MAX_SHARDS);
+            throw new RuntimeException("Too many cart shards");
+        }
+        if (count > 1) {
+            log.info("Spreading carts over {} shards", count);
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int shardOf(Integer cartId) {
+        return shardOf(cartId, count);
+    }
+
+    /**
+     * Runs the work on the shard of the cart. Transactions must be started within the work, a transaction which
+     * already holds a connection keeps using it.
+     */
+    public <T> T call(Integer cartId, Supplier<T> work) {
+        return callOnShard(shardOf(cartId), work);
+    }
+
+    public <T> T callOnShard(int shard, Supplier<T> work) {
+        if (count == 1) {
+            return work.get();
+        }
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    public void runOnShard(int shard, Runnable work) {
+        callOnShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the shard bound to the current thread, or null outside of {@link #call}, which means the first shard.
+     */
+    static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Jump consistent hash of Lamping and Veach. The id is mixed first, so consecutive ids spread evenly.
+     */
+    static int shardOf(int cartId, int shards) {
+        long key = cartId * 0x9E3779B97F4A7C15L;
+        long bucket = -1;
+        long next = 0;
+        while (next < shards) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+}
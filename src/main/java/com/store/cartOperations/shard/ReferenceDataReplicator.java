@@ -0,0 +1,61 @@
+package com.store.cartOperations.shard;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the products and users from the first shard to the other shards every
+ * {@code cart.shards.reference-sync-interval-ms}, in pages of {@code cart.shards.batch-size} rows.
+ * They are written on the first shard only, so the copies may be one interval behind; cart operations only read the
+ * name, price, category and discount flags of products and users, which rarely change. Rows deleted on the first shard
+ * are kept on the others, since items may still reference them.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class ReferenceDataReplicator {
+
+    private static final List<String> REFERENCE_TABLES = List.of("product", "retail_user");
+
+    private final ShardDataSources shardDataSources;
+    private final Timer replicationTimer;
+    private final int batchSize;
+
+    public ReferenceDataReplicator(ShardDataSources shardDataSources, MeterRegistry meterRegistry,
+                                   @Value("${cart.shards.batch-size:1000}") int batchSize) {
+        this.shardDataSources = shardDataSources;
+        this.batchSize = batchSize;
+        this.replicationTimer = Timer.builder("cart.shards.reference.sync")
+                .description("Time taken to copy the products and users to all shards")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.shards.reference-sync-interval-ms:60000}",
+            initialDelayString = "${cart.shards.reference-sync-interval-ms:60000}")
+    public void replicate() {
+        long start = System.nanoTime();
+        for (String table : REFERENCE_TABLES) {
+            long rows = 0;
+            int afterId = 0;
+            List<Map<String, Object>> page;
+            while (!(page = ShardRows.page(shardDataSources.jdbcTemplate(0), table, afterId, batchSize)).isEmpty()) {
+                for (int shard = 1; shard < shardDataSources.count(); shard++) {
+                    ShardRows.merge(shardDataSources.jdbcTemplate(shard), table, page);
+                }
+                afterId = ((Number) page.get(page.size() - 1).get("id")).intValue();
+                rows += page.size();
+            }
+            log.debug("Copied {} rows of {} to {} shards", rows, table, shardDataSources.count() - 1);
+        }
+        replicationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,59 @@
+package com.store.cartOperations.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spreads carts and their items over several databases, enabled by listing the databases after the first one in
+ * {@code cart.shards.urls}. The first shard is configured with the usual {@code spring.datasource.*} properties and
+ * holds the products and users; the other shards hold copies of them, see {@link ReferenceDataReplicator}.
+ * Cannot be combined with the read replica, both replace the data source.
+ */
+@Configuration
+@Slf4j
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class ShardConfiguration {
+
+    @Bean
+    public ShardDataSources shardDataSources(DataSourceProperties properties,
+                                             @Value("${cart.shards.urls}") List<String> urls,
+                                             @Value("${cart.shards.username:sa}") String username,
+                                             @Value("${cart.shards.password:}") String password,
+                                             @Value("${cart.shards.maximum-pool-size:10}") int maximumPoolSize) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        HikariDataSource first = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        first.setPoolName("shard-0");
+        first.setMaximumPoolSize(maximumPoolSize);
+        dataSources.add(first);
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(url.trim()).username(username).password(password).build();
+            dataSource.setPoolName("shard-" + dataSources.size());
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSources.add(dataSource);
+            log.info("Cart shard {} is at {}", dataSources.size() - 1, url.trim());
+        }
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shardDataSources));
+    }
+}
@@ -0,0 +1,64 @@
+package com.store.cartOperations.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies the products and users to all shards and moves the carts to their shards at startup when
+ * {@code cart.shards.rebalance-on-startup} is set, before the web server accepts requests and before the scheduled
+ * jobs run. The products and users are copied first, so a moved cart finds the rows it references on its new shard.
+ * A cart is not found while it waits to be moved, and {@link CartRebalancer} copies a cart before deleting it, so a
+ * change made during the copy would be lost; nothing may reach the carts until the rebalance is done. If it fails,
+ * the application does not start.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class ShardRebalanceLifecycle implements SmartLifecycle {
+
+    /**
+     * Below the phase of the web server, which starts at {@code SmartLifecycle.DEFAULT_PHASE - 2048}.
+     */
+    private static final int PHASE = 0;
+
+    private final ReferenceDataReplicator referenceDataReplicator;
+    private final CartRebalancer cartRebalancer;
+    private final boolean rebalanceOnStartup;
+    private volatile boolean running;
+
+    public ShardRebalanceLifecycle(ReferenceDataReplicator referenceDataReplicator, CartRebalancer cartRebalancer,
+                                   @Value("${cart.shards.rebalance-on-startup:true}") boolean rebalanceOnStartup) {
+        this.referenceDataReplicator = referenceDataReplicator;
+        this.cartRebalancer = cartRebalancer;
+        this.rebalanceOnStartup = rebalanceOnStartup;
+    }
+
+    @Override
+    public void start() {
+        log.info("Copying products and users to the shards before serving requests");
+        referenceDataReplicator.replicate();
+        if (rebalanceOnStartup) {
+            log.info("Moving carts to their shards before serving requests");
+            cartRebalancer.rebalance();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,31 @@
+package com.store.cartOperations.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections to the shard bound by {@link CartShards}, and to the first shard when none is bound.
+ * The shard is chosen when the connection is obtained, so the data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the cart operations bind the shard inside
+ * their transaction, the proxy defers obtaining the connection to the first statement.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardDataSources shardDataSources) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardDataSources.count(); shard++) {
+            targets.put(shard, shardDataSources.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shardDataSources.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return CartShards.currentShard();
+    }
+}
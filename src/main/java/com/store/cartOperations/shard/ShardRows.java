@@ -0,0 +1,54 @@
+package com.store.cartOperations.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies rows between shards with plain JDBC, whatever the columns of the table are.
+ */
+final class ShardRows {
+
+    private ShardRows() {
+    }
+
+    /**
+     * Reads the next rows of the table in id order.
+     */
+    static List<Map<String, Object>> page(JdbcTemplate source, String table, int afterId, int limit) {
+        return source.queryForList("SELECT * FROM " + table + " WHERE id > ? ORDER BY id LIMIT ?", afterId, limit);
+    }
+
+    /**
+     * Reads the rows of the table whose column holds one of the values.
+     */
+    static List<Map<String, Object>> whereIn(JdbcTemplate source, String table, String column, Collection<Integer> values) {
+        return source.queryForList("SELECT * FROM " + table + " WHERE " + column + " IN (" + placeholders(values.size()) + ")",
+                values.toArray());
+    }
+
+    /**
+     * Inserts the rows into the table or updates the rows with the same id.
+     */
+    static void merge(JdbcTemplate target, String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "MERGE INTO " + table + " (" + String.join(",", columns) + ") KEY (id) VALUES ("
+                + placeholders(columns.size()) + ")";
+        List<Object[]> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            values.add(columns.stream().map(row::get).toArray());
+        }
+        target.batchUpdate(sql, values);
+    }
+
+    static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
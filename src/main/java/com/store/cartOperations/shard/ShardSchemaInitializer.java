@@ -0,0 +1,73 @@
+package com.store.cartOperations.shard;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates the tables on shards which have none yet, as a copy of the schema Hibernate created on the first shard.
+ * The cart and item sequences of a new shard start at its id range, see {@link CartShards#ID_RANGE}.
+ * Two foreign keys of the first shard are left out on the others: {@code item.product_id} to {@code product} and
+ * {@code cart.retail_user_id} to {@code retail_user}. Products and users are only written to the first shard and
+ * copied to the others periodically by {@link ReferenceDataReplicator}, so a cart on another shard may reference a user
+ * or product whose copy has not arrived yet, and a moved cart may arrive before them. On those shards the database does
+ * not check these references; the service only sets them to products and users it has loaded. The foreign key of {@code item.cart_id} to {@code cart} is kept, both tables are on the same shard.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class ShardSchemaInitializer {
+
+    private static final List<String> SHARDED_SEQUENCES = List.of("cart_seq", "item_seq");
+
+    private final ShardDataSources shardDataSources;
+
+    /**
+     * The entity manager factory is only taken so the schema of the first shard is created before it is copied.
+     */
+    public ShardSchemaInitializer(ShardDataSources shardDataSources, EntityManagerFactory entityManagerFactory) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @PostConstruct
+    public void createSchemas() {
+        List<String> schema = null;
+        for (int shard = 1; shard < shardDataSources.count(); shard++) {
+            JdbcTemplate target = shardDataSources.jdbcTemplate(shard);
+            Integer tables = target.queryForObject(
+                    "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'CART'",
+                    Integer.class);
+            if (tables != null && tables > 0) {
+                continue;
+            }
+            if (schema == null) {
+                schema = schemaOfFirstShard();
+            }
+            schema.forEach(target::execute);
+            log.info("Created the schema of cart shard {} without the foreign keys of item.product_id and cart.retail_user_id",
+                    shard);
+            for (String sequence : SHARDED_SEQUENCES) {
+                target.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (long) shard * CartShards.ID_RANGE);
+            }
+        }
+    }
+
+    private List<String> schemaOfFirstShard() {
+        return shardDataSources.jdbcTemplate(0).queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("--") && !statement.startsWith("CREATE USER"))
+                .filter(statement -> !referencesReferenceData(statement))
+                .toList();
+    }
+
+    private static boolean referencesReferenceData(String statement) {
+        String normalized = statement.toUpperCase(Locale.ROOT);
+        return normalized.contains("FOREIGN KEY")
+                && (normalized.contains("REFERENCES \"PUBLIC\".\"PRODUCT\"") || normalized.contains("REFERENCES \"PUBLIC\".\"RETAIL_USER\""));
+    }
+}
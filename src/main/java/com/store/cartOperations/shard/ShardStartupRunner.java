@@ -0,0 +1,31 @@
+package com.store.cartOperations.shard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies the products and users to all shards again once the seed data and the catalog import were written, so their
+ * rows do not wait for the next scheduled copy. The first copy is made before requests are served, together with
+ * moving the carts, see {@link ShardRebalanceLifecycle}.
+ */
+@Component
+@Slf4j
+@Order(2)
+@ConditionalOnProperty(name = "cart.shards.urls")
+public class ShardStartupRunner implements ApplicationRunner {
+
+    private final ReferenceDataReplicator referenceDataReplicator;
+
+    public ShardStartupRunner(ReferenceDataReplicator referenceDataReplicator) {
+        this.referenceDataReplicator = referenceDataReplicator;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        referenceDataReplicator.replicate();
+    }
+}
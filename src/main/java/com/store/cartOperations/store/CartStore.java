@@ -0,0 +1,118 @@
+package com.store.cartOperations.store;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.pojo.CartSummary;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Persistence boundary used by the cart services.
+ * Implementations decide whether cart mutations are written straight to the repositories
+ * or kept in memory and written to the database later.
+ */
+public interface CartStore {
+
+    /**
+     * Returns the cart with the given id, loading it from the database when it is not already held by the store.
+     *
+     * @param cartId The id of the cart.
+     * @return The cart, or empty if no cart exists with the given id.
+     */
+    Optional<Cart> findById(Integer cartId);
+
+    /**
+     * Waits until the store can take a change of the cart with the given id. It is called before the cart is locked,
+     * so a store which is behind with its writes slows writers down without holding up other carts.
+     *
+     * @param cartId The id of the cart which is about to be changed.
+     * @throws RuntimeException if the store could not take the change in time.
+     */
+    default void awaitCapacity(Integer cartId) {
+    }
+
+    /**
+     * Runs a change of a cart and returns once the store has made it durable. A store which makes changes durable in
+     * the background waits after the change returned, when its transaction has committed and the cart concurrency
+     * control has released the cart, so other changes of the cart do not queue behind the wait.
+     *
+     * @param change The change, which runs the transaction of the cart.
+     * @return The result of the change.
+     */
+    default <T> T callDurable(Supplier<T> change) {
+        return change.get();
+    }
+
+    /**
+     * Returns the cart with the given id to be read but not changed, which needs less of the cart to be loaded.
+     *
+     * @param cartId The id of the cart.
+     * @return The cart, or empty if no cart exists with the given id.
+     */
+    default Optional<Cart> findForRead(Integer cartId) {
+        return findById(cartId);
+    }
+
+    /**
+     * Returns the revision of the cart with the given id without loading its items, see {@link Cart#getRevision()}.
+     *
+     * @param cartId The id of the cart.
+     * @return The revision, or empty if no cart exists with the given id.
+     */
+    Optional<Long> findRevision(Integer cartId);
+
+    /**
+     * Returns the item count and totals of the cart with the given id without loading its items.
+     *
+     * @param cartId The id of the cart.
+     * @return The summary, or empty if no cart exists with the given id.
+     */
+    Optional<CartSummary> findSummary(Integer cartId);
+
+    /**
+     * Drops the cart from the store before others delete it from the database, e.g. because it expired.
+     * A cart with changes which are not written yet, or which is being changed, is kept and must not be deleted.
+     *
+     * @param cartId The id of the cart.
+     * @return Whether the cart may be deleted.
+     */
+    default boolean evict(Integer cartId) {
+        return true;
+    }
+
+    /**
+     * Sets the tier of the given users on the carts the store holds in memory, whose users were loaded before the tier
+     * was changed in the database. Stores which load the user with every change have nothing to do.
+     *
+     * @param userIds The ids of the users whose tier changed.
+     * @param tier    The new tier.
+     */
+    default void userTierChanged(Collection<Integer> userIds, UserTier tier) {
+    }
+
+    /**
+     * Records the current state of the cart.
+     *
+     * @param cart The cart to save.
+     * @return The saved cart.
+     */
+    Cart save(Cart cart);
+
+    /**
+     * Records the current state of the item. Items without an id are always inserted so that they get one.
+     *
+     * @param item The item to save.
+     * @return The saved item.
+     */
+    Item saveItem(Item item);
+
+    /**
+     * Deletes the item from its cart.
+     *
+     * @param item The item to delete.
+     */
+    void deleteItem(Item item);
+}
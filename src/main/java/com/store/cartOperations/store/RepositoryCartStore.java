@@ -0,0 +1,59 @@
+package com.store.cartOperations.store;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.pojo.CartSummary;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Default cart store which writes every change straight through to the repositories.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "direct", matchIfMissing = true)
+public class RepositoryCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+    private final ItemRepository itemRepository;
+
+    @Override
+    public Optional<Cart> findById(Integer cartId) {
+        return cartRepository.findById(cartId);
+    }
+
+    @Override
+    public Optional<Cart> findForRead(Integer cartId) {
+        return cartRepository.findWithItemsById(cartId);
+    }
+
+    @Override
+    public Optional<Long> findRevision(Integer cartId) {
+        return cartRepository.findRevisionById(cartId);
+    }
+
+    @Override
+    public Optional<CartSummary> findSummary(Integer cartId) {
+        return cartRepository.findSummaryById(cartId);
+    }
+
+    @Override
+    public Cart save(Cart cart) {
+        return cartRepository.save(cart);
+    }
+
+    @Override
+    public Item saveItem(Item item) {
+        return itemRepository.save(item);
+    }
+
+    @Override
+    public void deleteItem(Item item) {
+        itemRepository.delete(item);
+    }
+}
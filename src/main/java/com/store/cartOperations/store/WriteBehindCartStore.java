@@ -0,0 +1,544 @@
+package com.store.cartOperations.store;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.pojo.CartSummary;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.shard.CartShards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Cart store which keeps active carts in memory and writes them to the database in the background.
+ * Mutations are applied to the resident cart and acknowledged straight away; the cart id is then put on a dirty queue
+ * which is drained periodically, writing up to {@code cart.store.flush-batch-size} carts per transaction.
+ * When {@code cart.store.dirty-queue-capacity} carts are waiting, a change of a cart which is not yet dirty waits for
+ * the flusher before the cart is locked, up to {@code cart.store.backpressure-timeout-ms}, so a slow database slows
+ * writers down instead of letting unflushed changes grow without limit. Writers never flush themselves: they hold the
+ * lock of their cart and their own transaction, and the flush locks other carts and takes another connection.
+ * Writers which passed the check at the same time may take the queue slightly past its capacity.
+ * New items are still inserted immediately because the item id is returned to the client and used by later calls.
+ * The services change the resident cart in place, so the state of a cart is recorded when a transaction first loads
+ * it; if the transaction rolls back, the cart is put back to that state and queued again.
+ * Carts deleted by others are evicted first, see {@link #evict(Integer)}; a change of an evicted cart instance fails
+ * as if the cart was not found, so it is never written back.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "write-behind")
+public class WriteBehindCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+    private final ItemRepository itemRepository;
+    private final EntityManager entityManager;
+    private final CartShards cartShards;
+    private final TransactionTemplate flushTransaction;
+    private final Timer flushTimer;
+    private final int flushBatchSize;
+    private final long idleEvictionMillis;
+    private final int dirtyQueueCapacity;
+    private final long backpressureTimeoutMillis;
+    private final BlockingQueue<Integer> dirtyCarts = new LinkedBlockingQueue<>();
+    private final ReentrantLock capacityLock = new ReentrantLock();
+    private final Condition capacityFreed = capacityLock.newCondition();
+    private final ConcurrentMap<Integer, ResidentCart> residentCarts = new ConcurrentHashMap<>();
+
+    public WriteBehindCartStore(CartRepository cartRepository, ItemRepository itemRepository, EntityManager entityManager,
+                                CartShards cartShards, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${cart.store.dirty-queue-capacity:10000}") int dirtyQueueCapacity,
+                                @Value("${cart.store.flush-batch-size:100}") int flushBatchSize,
+                                @Value("${cart.store.idle-eviction-ms:600000}") long idleEvictionMillis,
+                                @Value("${cart.store.backpressure-timeout-ms:5000}") long backpressureTimeoutMillis) {
+        this.cartRepository = cartRepository;
+        this.itemRepository = itemRepository;
+        this.entityManager = entityManager;
+        this.cartShards = cartShards;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushBatchSize = flushBatchSize;
+        this.idleEvictionMillis = idleEvictionMillis;
+        this.dirtyQueueCapacity = dirtyQueueCapacity;
+        this.backpressureTimeoutMillis = backpressureTimeoutMillis;
+        this.flushTimer = Timer.builder("cart.store.flush")
+                .description("Time taken to write one batch of dirty carts")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.dirty.queue.depth", dirtyCarts, BlockingQueue::size)
+                .description("Number of carts waiting to be written to the database")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.flush.lag", this, WriteBehindCartStore::flushLagMillis)
+                .description("Age of the oldest unflushed cart change")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("cart.store.resident.carts", residentCarts, ConcurrentMap::size)
+                .description("Number of carts held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Cart> findById(Integer cartId) {
+        ResidentCart resident = residentCarts.get(cartId);
+        if (resident != null && !resident.evicted) {
+            resident.lastAccess = System.currentTimeMillis();
+            guardRollback(resident, true);
+            return Optional.of(resident.cart);
+        }
+        return cartRepository.findById(cartId).map(cart -> {
+            // The resident copy must not be tracked by the caller's persistence context,
+            // otherwise the mutation transaction would write it back on commit.
+            if (entityManager.contains(cart)) {
+                entityManager.detach(cart);
+            }
+            log.debug("Loaded cart with id: {} into the write-behind store", cartId);
+            ResidentCart loaded = residentCarts.compute(cartId, (id, existing) ->
+                    existing != null && !existing.evicted ? existing : new ResidentCart(cart));
+            guardRollback(loaded, true);
+            return loaded.cart;
+        });
+    }
+
+    @Override
+    public void awaitCapacity(Integer cartId) {
+        if (dirtyCarts.size() < dirtyQueueCapacity) {
+            return;
+        }
+        ResidentCart resident = residentCarts.get(cartId);
+        if (resident != null && resident.dirty.get()) {
+            // Already queued, the change takes no further place in the queue.
+            return;
+        }
+        log.warn("Dirty cart queue is full, waiting for the flush before changing cart with id: {}", cartId);
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(backpressureTimeoutMillis);
+        capacityLock.lock();
+        try {
+            while (dirtyCarts.size() >= dirtyQueueCapacity) {
+                if (remainingNanos <= 0) {
+                    log.error("Timed out waiting for the dirty cart queue, cart with id: {} is not changed", cartId);
+                    throw new RuntimeException("Server is busy, please try again later");
+                }
+                remainingNanos = capacityFreed.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the dirty cart queue");
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Long> findRevision(Integer cartId) {
+        ResidentCart resident = residentCarts.get(cartId);
+        if (resident == null || resident.evicted) {
+            // Only resident carts have unflushed changes, the database has the revision of all others.
+            return cartRepository.findRevisionById(cartId);
+        }
+        resident.cart.mutationLock().lock();
+        try {
+            return Optional.of(resident.cart.getRevision());
+        } finally {
+            resident.cart.mutationLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<CartSummary> findSummary(Integer cartId) {
+        ResidentCart resident = residentCarts.get(cartId);
+        if (resident == null || resident.evicted) {
+            return cartRepository.findSummaryById(cartId);
+        }
+        resident.cart.mutationLock().lock();
+        try {
+            return Optional.of(CartSummary.of(resident.cart));
+        } finally {
+            resident.cart.mutationLock().unlock();
+        }
+    }
+
+    /**
+     * Evicts the cart unless it is being changed or has unflushed changes. The evicted entry stays in memory until the
+     * next idle eviction, so a request still holding the cart instance fails instead of putting it back.
+     */
+    @Override
+    public boolean evict(Integer cartId) {
+        ResidentCart resident = residentCarts.get(cartId);
+        if (resident == null) {
+            return true;
+        }
+        Lock lock = resident.cart.mutationLock();
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (resident.dirty.get()) {
+                return false;
+            }
+            resident.evicted = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void userTierChanged(Collection<Integer> userIds, UserTier tier) {
+        Set<Integer> changed = new HashSet<>(userIds);
+        residentCarts.values().forEach(resident -> {
+            RetailUser user = resident.cart.getRetailUser();
+            if (user == null || !Hibernate.isInitialized(user) || !changed.contains(user.getId())) {
+                return;
+            }
+            resident.cart.mutationLock().lock();
+            try {
+                // The user is not cascaded from the cart, the flush does not write it back.
+                user.setTier(tier);
+            } finally {
+                resident.cart.mutationLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public Cart save(Cart cart) {
+        markDirty(resident(cart));
+        return cart;
+    }
+
+    @Override
+    public Item saveItem(Item item) {
+        if (item.getId() == null) {
+            item = itemRepository.save(item);
+        }
+        markDirty(resident(item.getCart()));
+        return item;
+    }
+
+    @Override
+    public void deleteItem(Item item) {
+        ResidentCart resident = resident(item.getCart());
+        resident.cart.mutationLock().lock();
+        try {
+            resident.deletedItemIds.add(item.getId());
+        } finally {
+            resident.cart.mutationLock().unlock();
+        }
+        markDirty(resident);
+    }
+
+    /**
+     * Writes all dirty carts to the database, {@code cart.store.flush-batch-size} carts per transaction.
+     * When carts are sharded, a batch is written in one transaction per shard.
+     * Only the carts queued when the flush starts are written, carts failing to flush are retried by the next run.
+     */
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:500}")
+    public void flush() {
+        List<Integer> batch = new ArrayList<>(flushBatchSize);
+        int remaining = dirtyCarts.size();
+        while (remaining > 0 && dirtyCarts.drainTo(batch, Math.min(flushBatchSize, remaining)) > 0) {
+            remaining -= batch.size();
+            signalCapacity();
+            if (cartShards.count() == 1) {
+                flushBatch(batch);
+            } else {
+                batch.stream().collect(Collectors.groupingBy(cartShards::shardOf))
+                        .forEach((shard, cartIds) -> cartShards.runOnShard(shard, () -> flushBatch(cartIds)));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Drops carts from memory which have no unflushed changes and have not been used for {@code cart.store.idle-eviction-ms},
+     * and the carts evicted since the last run.
+     */
+    @Scheduled(fixedDelayString = "${cart.store.idle-eviction-ms:600000}")
+    public void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+        residentCarts.values().forEach(resident -> {
+            resident.cart.mutationLock().lock();
+            try {
+                if (resident.evicted || !resident.dirty.get() && resident.lastAccess < idleBefore) {
+                    residentCarts.remove(resident.cart.getId(), resident);
+                }
+            } finally {
+                resident.cart.mutationLock().unlock();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        log.info("Flushing {} dirty carts before shutdown", dirtyCarts.size());
+        flush();
+    }
+
+    private void signalCapacity() {
+        capacityLock.lock();
+        try {
+            capacityFreed.signalAll();
+        } finally {
+            capacityLock.unlock();
+        }
+    }
+
+    private void flushBatch(List<Integer> batch) {
+        long start = System.nanoTime();
+        List<ResidentCart> flushed = new ArrayList<>(batch.size());
+        List<List<Integer>> deletedItemIds = new ArrayList<>(batch.size());
+        List<Cart> merged = new ArrayList<>(batch.size());
+        try {
+            flushTransaction.executeWithoutResult(status -> {
+                for (Integer cartId : batch) {
+                    ResidentCart resident = residentCarts.get(cartId);
+                    if (resident == null || resident.evicted) {
+                        continue;
+                    }
+                    resident.cart.mutationLock().lock();
+                    try {
+                        resident.dirty.set(false);
+                        List<Integer> deleted = new ArrayList<>(resident.deletedItemIds);
+                        resident.deletedItemIds.clear();
+                        flushed.add(resident);
+                        deletedItemIds.add(deleted);
+                        if (!deleted.isEmpty()) {
+                            itemRepository.deleteAllByIdInBatch(deleted);
+                        }
+                        merged.add(entityManager.merge(resident.cart));
+                    } finally {
+                        resident.cart.mutationLock().unlock();
+                    }
+                }
+            });
+            // The version is incremented on the merged copy when it is written, the resident cart needs it for its next flush.
+            for (int i = 0; i < flushed.size(); i++) {
+                ResidentCart resident = flushed.get(i);
+                resident.cart.mutationLock().lock();
+                try {
+                    resident.cart.setVersion(merged.get(i).getVersion());
+                } finally {
+                    resident.cart.mutationLock().unlock();
+                }
+            }
+            log.debug("Flushed {} carts in {}ms", flushed.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException ex) {
+            log.error("Failed to flush carts {}, they will be retried", batch, ex);
+            for (int i = 0; i < flushed.size(); i++) {
+                ResidentCart resident = flushed.get(i);
+                resident.cart.mutationLock().lock();
+                try {
+                    resident.deletedItemIds.addAll(deletedItemIds.get(i));
+                } finally {
+                    resident.cart.mutationLock().unlock();
+                }
+                requeue(resident);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private ResidentCart resident(Cart cart) {
+        ResidentCart resident = residentCarts.compute(cart.getId(), (id, existing) ->
+                existing != null && existing.cart == cart ? existing : new ResidentCart(cart));
+        if (resident.evicted) {
+            log.error("Cart with id: {} was deleted while it was being changed", cart.getId());
+            throw new RuntimeException("Cart not found");
+        }
+        // A cart which was not loaded through the store is already changed, it can only be dropped on a rollback.
+        guardRollback(resident, false);
+        return resident;
+    }
+
+    /**
+     * Registers the resident cart with the current transaction the first time the transaction touches it. With
+     * {@code recordState} the state of the cart is recorded and put back if the transaction rolls back; otherwise
+     * the cart is dropped from memory on a rollback and loaded from the database again. Read-only transactions and
+     * calls outside a transaction change nothing which could be rolled back.
+     */
+    private void guardRollback(ResidentCart resident, boolean recordState) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || TransactionSynchronizationManager.hasResource(resident)) {
+            return;
+        }
+        CartState state = null;
+        if (recordState) {
+            resident.cart.mutationLock().lock();
+            try {
+                state = new CartState(resident);
+            } finally {
+                resident.cart.mutationLock().unlock();
+            }
+        }
+        Mutation mutation = new Mutation(resident, state);
+        TransactionSynchronizationManager.bindResource(resident, mutation);
+        TransactionSynchronizationManager.registerSynchronization(mutation);
+    }
+
+    /**
+     * Undoes the changes a rolled back transaction made to the resident cart. The cart is queued again, so a flush
+     * which wrote the changes in the meantime is overwritten; the version is kept because it follows the flushes.
+     */
+    private void rollBack(Mutation mutation) {
+        ResidentCart resident = mutation.resident;
+        resident.cart.mutationLock().lock();
+        try {
+            if (resident.evicted) {
+                return;
+            }
+            if (mutation.state == null) {
+                log.error("Change of cart with id: {} was rolled back, dropping it from memory", resident.cart.getId());
+                residentCarts.remove(resident.cart.getId(), resident);
+                return;
+            }
+            log.error("Change of cart with id: {} was rolled back, putting back the state it had before", resident.cart.getId());
+            mutation.state.restore(resident);
+        } finally {
+            resident.cart.mutationLock().unlock();
+        }
+        requeue(resident);
+    }
+
+    private void markDirty(ResidentCart resident) {
+        resident.lastAccess = System.currentTimeMillis();
+        if (resident.dirty.compareAndSet(false, true)) {
+            resident.dirtySince = System.nanoTime();
+            // The caller holds the lock of the cart, it must neither flush nor wait here, see awaitCapacity.
+            dirtyCarts.add(resident.cart.getId());
+        }
+    }
+
+    private void requeue(ResidentCart resident) {
+        if (resident.dirty.compareAndSet(false, true)) {
+            dirtyCarts.add(resident.cart.getId());
+        }
+    }
+
+    private double flushLagMillis() {
+        Integer oldest = dirtyCarts.peek();
+        ResidentCart resident = oldest != null ? residentCarts.get(oldest) : null;
+        if (resident == null || !resident.dirty.get()) {
+            return 0;
+        }
+        return (System.nanoTime() - resident.dirtySince) / 1_000_000.0;
+    }
+
+    private final class Mutation implements TransactionSynchronization {
+        private final ResidentCart resident;
+        private final CartState state;
+
+        private Mutation(ResidentCart resident, CartState state) {
+            this.resident = resident;
+            this.state = state;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(resident);
+            if (status == STATUS_ROLLED_BACK) {
+                rollBack(this);
+            }
+        }
+    }
+
+    /**
+     * The contents of a resident cart as the services change them: the totals of the cart, its item list and the
+     * quantities and discounts of the items. Taken and restored while the cart is locked.
+     */
+    private static final class CartState {
+        private final long revision;
+        private final Long lastActivityAt;
+        private final int itemCount;
+        private final long totalCost;
+        private final long billDiscount;
+        private final long userDiscount;
+        private final List<Item> items;
+        private final Map<Item, long[]> itemValues;
+        private final Set<Integer> deletedItemIds;
+
+        private CartState(ResidentCart resident) {
+            Cart cart = resident.cart;
+            this.revision = cart.getRevision();
+            this.lastActivityAt = cart.getLastActivityAt();
+            this.itemCount = cart.getItemCount();
+            this.totalCost = cart.getTotalCost();
+            this.billDiscount = cart.getBillDiscount();
+            this.userDiscount = cart.getUserDiscount();
+            this.items = cart.getItems() != null ? new ArrayList<>(cart.getItems()) : null;
+            this.itemValues = new IdentityHashMap<>();
+            if (items != null) {
+                for (Item item : items) {
+                    itemValues.put(item, new long[]{item.getQuantity(), item.getReservedQuantity(), item.getDiscount()});
+                }
+            }
+            this.deletedItemIds = new HashSet<>(resident.deletedItemIds);
+        }
+
+        private void restore(ResidentCart resident) {
+            Cart cart = resident.cart;
+            cart.setRevision(revision);
+            cart.setLastActivityAt(lastActivityAt);
+            cart.setItemCount(itemCount);
+            cart.setTotalCost(totalCost);
+            cart.setBillDiscount(billDiscount);
+            cart.setUserDiscount(userDiscount);
+            itemValues.forEach((item, values) -> {
+                item.setQuantity((int) values[0]);
+                item.setReservedQuantity((int) values[1]);
+                item.setDiscount(values[2]);
+            });
+            // A new list, so the item index of the cart is rebuilt.
+            cart.setItems(items != null ? new ArrayList<>(items) : null);
+            resident.deletedItemIds.clear();
+            resident.deletedItemIds.addAll(deletedItemIds);
+        }
+    }
+
+    private static final class ResidentCart {
+        private final Cart cart;
+        private final Set<Integer> deletedItemIds = new HashSet<>();
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private volatile long dirtySince;
+        private volatile long lastAccess = System.currentTimeMillis();
+        private volatile boolean evicted;
+
+        private ResidentCart(Cart cart) {
+            this.cart = cart;
+        }
+    }
+}
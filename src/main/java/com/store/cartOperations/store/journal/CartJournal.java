@@ -0,0 +1,417 @@
+package com.store.cartOperations.store.journal;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of entries in memory-mapped segment files of {@code segmentSize} bytes.
+ * Every entry is framed as its length, a CRC32C checksum and the payload; reading a segment stops at the first frame
+ * which is empty, cut off or fails its checksum, which is where the writer stopped, e.g. when the process died.
+ * Appending only copies the entry into the mapped segment. {@link #awaitDurable(long)} waits until a background thread
+ * has forced the segment to disk; writers waiting at the same time share one force, so the cost of a sync is spread
+ * over all entries appended while the previous one ran (group commit).
+ * A snapshot holds full entries of all carts at the start of a segment. Once it is written the older segments and
+ * snapshots are deleted, so the log only grows by the entries written since the last snapshot.
+ */
+@Slf4j
+class CartJournal implements AutoCloseable {
+
+    private static final int FRAME_HEADER = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean fsync;
+    private final Timer forceTimer;
+    private final DistributionSummary groupSize;
+    // A lock rather than synchronized methods, so virtual threads waiting to append or for a sync are not pinned.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition syncRequested = lock.newCondition();
+    private final Condition synced = lock.newCondition();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int segmentPosition;
+    private long appended;
+    private long durable;
+    private long appendedEntries;
+    private long durableEntries;
+    private RuntimeException failure;
+    private Thread syncThread;
+    private volatile boolean running;
+
+    CartJournal(Path directory, int segmentSize, boolean fsync, MeterRegistry meterRegistry) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.forceTimer = Timer.builder("cart.journal.force")
+                .description("Time taken to force the journal segment to disk")
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("cart.journal.group.size")
+                .description("Number of journal entries made durable by one force")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the newest snapshot and the segments written after it, passing every entry to the reader in order,
+     * then starts a new segment for appending.
+     */
+    void open(Consumer<ByteBuffer> reader) {
+        try {
+            Files.createDirectories(directory);
+            startSegment(readFromSnapshot(reader, true) + 1);
+        } catch (IOException ex) {
+            log.error("Cannot open the cart journal in {}", directory, ex);
+            throw new RuntimeException("Cannot open the cart journal");
+        }
+        running = true;
+        syncThread = Thread.ofPlatform().name("cart-journal-sync").daemon().start(this::syncLoop);
+    }
+
+    /**
+     * Reads the newest snapshot and all entries appended after it again, passing every entry to the reader in order.
+     * Appending waits until the journal is read.
+     */
+    void replay(Consumer<ByteBuffer> reader) {
+        lock.lock();
+        try {
+            readFromSnapshot(reader, false);
+        } catch (IOException ex) {
+            log.error("Cannot read the cart journal in {}", directory, ex);
+            throw new RuntimeException("Cannot read the cart journal");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends an entry, without waiting for it to be durable.
+     *
+     * @param payload The entry.
+     * @return The position after the entry, to be passed to {@link #awaitDurable(long)}.
+     */
+    long append(byte[] payload) {
+        int frameSize = FRAME_HEADER + payload.length;
+        if (frameSize > segmentSize) {
+            log.error("Journal entry of {} bytes does not fit into a segment of {} bytes", payload.length, segmentSize);
+            throw new RuntimeException("Journal entry is too large");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        lock.lock();
+        try {
+            if (segmentPosition + frameSize > segmentSize) {
+                startSegment(segmentIndex + 1);
+            }
+            segment.putInt(segmentPosition + 4, (int) crc.getValue());
+            segment.put(segmentPosition + FRAME_HEADER, payload);
+            // The length is written last, a reader never sees a frame whose payload is still being copied.
+            segment.putInt(segmentPosition, payload.length);
+            segmentPosition += frameSize;
+            appended += frameSize;
+            appendedEntries++;
+            return appended;
+        } catch (IOException ex) {
+            log.error("Cannot start a new journal segment in {}", directory, ex);
+            throw new RuntimeException("Cannot write to the cart journal");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything up to the position is forced to disk. Returns at once when fsync is disabled.
+     *
+     * @throws RuntimeException if forcing the segment failed.
+     */
+    void awaitDurable(long position) {
+        if (!fsync) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < position) {
+                if (failure != null) {
+                    throw failure;
+                }
+                syncRequested.signal();
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a snapshot. Appending continues in a new segment, the snapshot replaces all segments before it.
+     * Entries appended to the new segment while the snapshot is written may already be part of it; they are applied
+     * again on restart, so entries must set state rather than change it.
+     */
+    Snapshot beginSnapshot() {
+        lock.lock();
+        try {
+            startSegment(segmentIndex + 1);
+            return new Snapshot(segmentIndex);
+        } catch (IOException ex) {
+            log.error("Cannot start a new journal segment in {}", directory, ex);
+            throw new RuntimeException("Cannot write to the cart journal");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        lock.lock();
+        try {
+            syncRequested.signal();
+            if (segment != null) {
+                segment.force();
+                channel.close();
+            }
+            durable = appended;
+            synced.signalAll();
+        } catch (IOException ex) {
+            log.error("Cannot close the cart journal segment {}", segmentIndex, ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void syncLoop() {
+        while (running) {
+            MappedByteBuffer target;
+            long position;
+            long entries;
+            lock.lock();
+            try {
+                while (running && durable >= appended) {
+                    syncRequested.awaitUninterruptibly();
+                }
+                target = segment;
+                position = appended;
+                entries = appendedEntries;
+            } finally {
+                lock.unlock();
+            }
+            long start = System.nanoTime();
+            RuntimeException error = null;
+            try {
+                target.force();
+            } catch (RuntimeException ex) {
+                log.error("Failed to force the cart journal to disk", ex);
+                error = ex;
+            }
+            forceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = new RuntimeException("Cannot write to the cart journal");
+                } else {
+                    failure = null;
+                    if (position > durable) {
+                        groupSize.record(entries - durableEntries);
+                        durable = position;
+                        durableEntries = entries;
+                    }
+                }
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the newest snapshot and the segments after it, deleting older segments left over from a compaction which
+     * did not finish when asked to.
+     *
+     * @return The index of the last segment read, or of the snapshot when there is no segment after it.
+     */
+    private long readFromSnapshot(Consumer<ByteBuffer> reader, boolean deleteOlder) throws IOException {
+        long snapshotIndex = -1;
+        List<Long> snapshots = indexes(SNAPSHOT_PREFIX);
+        if (!snapshots.isEmpty()) {
+            snapshotIndex = snapshots.get(snapshots.size() - 1);
+            int entries = read(file(SNAPSHOT_PREFIX, snapshotIndex), reader);
+            log.info("Read {} carts from journal snapshot {}", entries, snapshotIndex);
+        }
+        long lastIndex = snapshotIndex;
+        for (Long index : indexes(SEGMENT_PREFIX)) {
+            if (index < snapshotIndex) {
+                if (deleteOlder) {
+                    Files.deleteIfExists(file(SEGMENT_PREFIX, index));
+                }
+                continue;
+            }
+            int entries = read(file(SEGMENT_PREFIX, index), reader);
+            log.debug("Read {} entries from journal segment {}", entries, index);
+            lastIndex = index;
+        }
+        return lastIndex;
+    }
+
+    /**
+     * Forces the current segment and maps a new one. Called holding the lock.
+     */
+    private void startSegment(long index) throws IOException {
+        if (segment != null) {
+            segment.force();
+            channel.close();
+            durable = appended;
+            durableEntries = appendedEntries;
+            synced.signalAll();
+        }
+        channel = FileChannel.open(file(SEGMENT_PREFIX, index), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+        segmentPosition = 0;
+    }
+
+    private int read(Path file, Consumer<ByteBuffer> reader) throws IOException {
+        int entries = 0;
+        try (FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            while (buffer.remaining() >= FRAME_HEADER) {
+                int length = buffer.getInt(buffer.position());
+                if (length <= 0 || length > buffer.remaining() - FRAME_HEADER) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position() + FRAME_HEADER, length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(buffer.position() + 4)) {
+                    log.warn("Journal entry at {} of {} fails its checksum, ignoring the rest of the file",
+                            buffer.position(), file.getFileName());
+                    break;
+                }
+                reader.accept(payload);
+                buffer.position(buffer.position() + FRAME_HEADER + length);
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    private List<Long> indexes(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && !name.endsWith(".tmp"))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.indexOf('.'))))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path file(String prefix, long index) {
+        return directory.resolve(String.format("%s%020d.log", prefix, index));
+    }
+
+    /**
+     * Snapshot being written; {@link #commit()} makes it the start of the journal, closing it without commit drops it.
+     */
+    final class Snapshot implements AutoCloseable {
+
+        private final long index;
+        private final Path temporary;
+        private final FileChannel output;
+        private boolean committed;
+        private int entries;
+
+        private Snapshot(long index) throws IOException {
+            this.index = index;
+            this.temporary = directory.resolve(file(SNAPSHOT_PREFIX, index).getFileName() + ".tmp");
+            this.output = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        void add(byte[] payload) {
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length)
+                    .putInt(payload.length)
+                    .putInt((int) crc.getValue())
+                    .put(payload)
+                    .flip();
+            try {
+                while (frame.hasRemaining()) {
+                    output.write(frame);
+                }
+            } catch (IOException ex) {
+                log.error("Cannot write the journal snapshot {}", temporary, ex);
+                throw new RuntimeException("Cannot write the journal snapshot");
+            }
+            entries++;
+        }
+
+        /**
+         * Syncs the snapshot, moves it in place and deletes the segments and snapshots it replaces.
+         *
+         * @return The number of carts in the snapshot.
+         */
+        int commit() {
+            // Under the lock, so the files do not change while the journal is replayed.
+            lock.lock();
+            try {
+                output.force(true);
+                output.close();
+                Files.move(temporary, file(SNAPSHOT_PREFIX, index), StandardCopyOption.ATOMIC_MOVE);
+                committed = true;
+                for (Long older : indexes(SNAPSHOT_PREFIX)) {
+                    if (older < index) {
+                        Files.deleteIfExists(file(SNAPSHOT_PREFIX, older));
+                    }
+                }
+                List<Long> compacted = new ArrayList<>();
+                for (Long older : indexes(SEGMENT_PREFIX)) {
+                    if (older < index) {
+                        Files.deleteIfExists(file(SEGMENT_PREFIX, older));
+                        compacted.add(older);
+                    }
+                }
+                log.debug("Journal snapshot {} replaces segments {}", index, compacted);
+                return entries;
+            } catch (IOException ex) {
+                log.error("Cannot commit the journal snapshot {}", index, ex);
+                throw new RuntimeException("Cannot write the journal snapshot");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                output.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException ex) {
+                log.warn("Cannot delete the unfinished journal snapshot {}", temporary, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.store.cartOperations.store.journal;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Binary records of the cart journal. Every record sets state instead of changing it, so applying a record again
+ * leaves the cart as it was; snapshots rely on it.
+ * <ul>
+ *     <li>{@code CART}: the whole cart with its user id, totals and items, written when a cart joins the journal and
+ *     in snapshots.</li>
+ *     <li>{@code ITEM}: all fields of an item which was added or changed, e.g. its quantity, reserved quantity or
+ *     discount.</li>
+ *     <li>{@code ITEM_REMOVED}: the id of a removed item.</li>
+ *     <li>{@code TOTALS}: revision, item count, totals and discounts of the cart after a change.</li>
+ * </ul>
+ * Integers are written big-endian, names as their UTF-8 length and bytes.
+ */
+final class CartRecords {
+
+    private static final byte CART = 1;
+    private static final byte ITEM = 2;
+    private static final byte ITEM_REMOVED = 3;
+    private static final byte TOTALS = 4;
+
+    private CartRecords() {
+    }
+
+    static void writeCart(Writer writer, Cart cart) {
+        writer.putByte(CART).putInt(cart.getId()).putInt(cart.getRetailUser().getId()).putLong(cart.getVersion());
+        writeTotalsBody(writer, cart);
+        List<Item> items = cart.getItems() != null ? cart.getItems() : List.of();
+        writer.putInt(items.size());
+        for (Item item : items) {
+            writeItemBody(writer, item);
+        }
+    }
+
+    static void writeItem(Writer writer, Item item) {
+        writer.putByte(ITEM).putInt(item.getCart().getId());
+        writeItemBody(writer, item);
+    }
+
+    static void writeItemRemoved(Writer writer, Item item) {
+        writer.putByte(ITEM_REMOVED).putInt(item.getCart().getId()).putInt(item.getId());
+    }
+
+    static void writeTotals(Writer writer, Cart cart) {
+        writer.putByte(TOTALS).putInt(cart.getId());
+        writeTotalsBody(writer, cart);
+    }
+
+    /**
+     * Applies the records of one journal entry to the carts, adding the carts of {@code CART} records.
+     * Records of carts which are not in the map are skipped.
+     */
+    static void apply(ByteBuffer entry, Map<Integer, Cart> carts) {
+        apply(entry, carts, cartId -> true);
+    }
+
+    /**
+     * Applies the records of one journal entry to the carts, adding the carts of {@code CART} records whose id is
+     * accepted by the filter. Records of carts which are not in the map are skipped.
+     */
+    static void apply(ByteBuffer entry, Map<Integer, Cart> carts, IntPredicate cartIds) {
+        while (entry.hasRemaining()) {
+            byte type = entry.get();
+            int cartId = entry.getInt();
+            Cart cart = carts.get(cartId);
+            switch (type) {
+                case CART -> {
+                    Cart read = readCart(entry, cartId);
+                    if (cartIds.test(cartId)) {
+                        carts.put(cartId, read);
+                    }
+                }
+                case ITEM -> {
+                    Item item = readItemBody(entry);
+                    if (cart != null) {
+                        putItem(cart, item);
+                    }
+                }
+                case ITEM_REMOVED -> {
+                    int itemId = entry.getInt();
+                    Item item = cart != null ? cart.findItem(itemId) : null;
+                    if (item != null) {
+                        cart.removeItem(item);
+                    }
+                }
+                case TOTALS -> {
+                    Cart totals = new Cart();
+                    readTotalsBody(entry, totals);
+                    if (cart != null) {
+                        cart.setRevision(totals.getRevision());
+                        cart.setItemCount(totals.getItemCount());
+                        cart.setTotalCost(totals.getTotalCost());
+                        cart.setBillDiscount(totals.getBillDiscount());
+                        cart.setUserDiscount(totals.getUserDiscount());
+                    }
+                }
+                default -> throw new RuntimeException("Unknown cart journal record type " + type);
+            }
+        }
+    }
+
+    private static Cart readCart(ByteBuffer entry, int cartId) {
+        Cart cart = Cart.builder()
+                .id(cartId)
+                // Only the id of the user is journaled, the store loads the user before the cart is changed.
+                .retailUser(RetailUser.builder().id(entry.getInt()).build())
+                .version(entry.getLong())
+                .items(new ArrayList<>())
+                .build();
+        readTotalsBody(entry, cart);
+        int itemCount = entry.getInt();
+        for (int i = 0; i < itemCount; i++) {
+            Item item = readItemBody(entry);
+            item.setCart(cart);
+            cart.addItem(item);
+        }
+        return cart;
+    }
+
+    private static void putItem(Cart cart, Item item) {
+        Item existing = cart.findItem(item.getId());
+        if (existing == null) {
+            item.setCart(cart);
+            cart.addItem(item);
+            return;
+        }
+        existing.setQuantity(item.getQuantity());
+        existing.setReservedQuantity(item.getReservedQuantity());
+        existing.setPrice(item.getPrice());
+        existing.setDiscount(item.getDiscount());
+        existing.setName(item.getName());
+        existing.setCategory(item.getCategory());
+    }
+
+    private static void writeTotalsBody(Writer writer, Cart cart) {
+        writer.putLong(cart.getRevision()).putInt(cart.getItemCount()).putLong(cart.getTotalCost())
+                .putLong(cart.getBillDiscount()).putLong(cart.getUserDiscount());
+    }
+
+    private static void readTotalsBody(ByteBuffer entry, Cart cart) {
+        cart.setRevision(entry.getLong());
+        cart.setItemCount(entry.getInt());
+        cart.setTotalCost(entry.getLong());
+        cart.setBillDiscount(entry.getLong());
+        cart.setUserDiscount(entry.getLong());
+    }
+
+    private static void writeItemBody(Writer writer, Item item) {
+        writer.putInt(item.getId())
+                .putInt(item.getProduct().getId())
+                .putByte((byte) (item.getCategory() != null ? item.getCategory().ordinal() : -1))
+                .putInt(item.getQuantity())
+                .putInt(item.getReservedQuantity())
+                .putLong(item.getPrice())
+                .putLong(item.getDiscount())
+                .putString(item.getName());
+    }
+
+    private static Item readItemBody(ByteBuffer entry) {
+        Item item = new Item();
+        item.setId(entry.getInt());
+        item.setProduct(Product.builder().id(entry.getInt()).build());
+        byte category = entry.get();
+        item.setCategory(category >= 0 ? Category.values()[category] : null);
+        item.setQuantity(entry.getInt());
+        item.setReservedQuantity(entry.getInt());
+        item.setPrice(entry.getLong());
+        item.setDiscount(entry.getLong());
+        int nameLength = entry.getInt();
+        if (nameLength >= 0) {
+            byte[] name = new byte[nameLength];
+            entry.get(name);
+            item.setName(new String(name, StandardCharsets.UTF_8));
+        }
+        return item;
+    }
+
+    /**
+     * Growable buffer the records are written to.
+     */
+    static final class Writer {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        Writer putByte(byte value) {
+            ensure(1);
+            bytes[size++] = value;
+            return this;
+        }
+
+        Writer putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+            return this;
+        }
+
+        Writer putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+            return this;
+        }
+
+        Writer putString(String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            putInt(encoded.length);
+            ensure(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+            return this;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        private void ensure(int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+        }
+    }
+}
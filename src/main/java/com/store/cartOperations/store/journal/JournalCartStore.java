@@ -0,0 +1,456 @@
+package com.store.cartOperations.store.journal;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.IdAllocation;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.UserTier;
+import com.store.cartOperations.pojo.CartSummary;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.store.CartStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Cart store which keeps carts in memory and records their changes in the {@link CartJournal} instead of the cart and
+ * item tables. A cart joins the journal with a full record when it is first loaded from the database; after that the
+ * journal is the only place its changes are written to. The records written by the cart store calls of one mutation
+ * are appended as one entry when the cart is saved. Changes run through {@link #callDurable(Supplier)} wait for the
+ * entry to be synced to disk once the cart concurrency control released the cart, so the next change of the cart is
+ * appended while the sync runs and shares the next one; other transactions wait before they commit.
+ * Ids of new items are taken from the item sequence in blocks, no row is inserted.
+ * Every {@code cart.journal.snapshot-interval-ms} all carts are written to a snapshot and the journal is compacted.
+ * At startup the carts are rebuilt from the latest snapshot and the entries after it.
+ * The cart and item rows of journaled carts are not updated any more, so the mode cannot be switched back without
+ * losing the journaled changes.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "journal")
+public class JournalCartStore implements CartStore {
+
+    private final CartRepository cartRepository;
+    private final RetailUserRepository retailUserRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final CartJournal journal;
+    private final Path directory;
+    /**
+     * The journal position the change run by {@link #callDurable(Supplier)} on the current thread has to wait for.
+     */
+    private final ThreadLocal<long[]> deferredPosition = new ThreadLocal<>();
+    private final ConcurrentMap<Integer, JournaledCart> carts = new ConcurrentHashMap<>();
+    private final ReentrantLock itemIdLock = new ReentrantLock();
+    private long nextItemId;
+    private long itemIdLimit;
+
+    public JournalCartStore(CartRepository cartRepository, RetailUserRepository retailUserRepository,
+                            EntityManager entityManager, JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                            @Value("${cart.journal.directory:cart-journal}") String directory,
+                            @Value("${cart.journal.segment-size-bytes:67108864}") int segmentSize,
+                            @Value("${cart.journal.fsync:true}") boolean fsync) {
+        this.cartRepository = cartRepository;
+        this.retailUserRepository = retailUserRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.directory = Path.of(directory);
+        this.journal = new CartJournal(this.directory, segmentSize, fsync, meterRegistry);
+        Gauge.builder("cart.journal.carts", carts, Map::size)
+                .description("Number of carts held in the journal")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void recover() {
+        long start = System.nanoTime();
+        Map<Integer, Cart> recovered = new HashMap<>();
+        journal.open(entry -> CartRecords.apply(entry, recovered));
+        recovered.forEach((cartId, cart) -> carts.put(cartId, new JournaledCart(cart, false)));
+        log.info("Recovered {} carts from the journal in {} in {}ms", recovered.size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public Optional<Cart> findById(Integer cartId) {
+        JournaledCart journaled = carts.get(cartId);
+        if (journaled == null) {
+            Optional<Cart> loaded = cartRepository.findById(cartId);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            // The journaled copy must not be tracked by the caller's persistence context, nothing writes it back.
+            if (entityManager.contains(loaded.get())) {
+                entityManager.detach(loaded.get());
+            }
+            journaled = join(loaded.get());
+        }
+        if (!journaled.userLoaded) {
+            loadUser(journaled);
+        }
+        return Optional.of(journaled.cart);
+    }
+
+    @Override
+    public <T> T callDurable(Supplier<T> change) {
+        if (deferredPosition.get() != null) {
+            return change.get();
+        }
+        long[] position = new long[1];
+        deferredPosition.set(position);
+        T result;
+        try {
+            result = change.get();
+        } finally {
+            deferredPosition.remove();
+        }
+        if (position[0] > 0) {
+            journal.awaitDurable(position[0]);
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Cart> findForRead(Integer cartId) {
+        JournaledCart journaled = carts.get(cartId);
+        // Carts not in the journal were never changed in this mode, the database has their current state.
+        return journaled != null ? Optional.of(journaled.cart) : cartRepository.findWithItemsById(cartId);
+    }
+
+    @Override
+    public Optional<Long> findRevision(Integer cartId) {
+        JournaledCart journaled = carts.get(cartId);
+        if (journaled == null) {
+            return cartRepository.findRevisionById(cartId);
+        }
+        journaled.cart.mutationLock().lock();
+        try {
+            return Optional.of(journaled.cart.getRevision());
+        } finally {
+            journaled.cart.mutationLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<CartSummary> findSummary(Integer cartId) {
+        JournaledCart journaled = carts.get(cartId);
+        if (journaled == null) {
+            return cartRepository.findSummaryById(cartId);
+        }
+        journaled.cart.mutationLock().lock();
+        try {
+            return Optional.of(CartSummary.of(journaled.cart));
+        } finally {
+            journaled.cart.mutationLock().unlock();
+        }
+    }
+
+    @Override
+    public void userTierChanged(Collection<Integer> userIds, UserTier tier) {
+        Set<Integer> changed = new HashSet<>(userIds);
+        for (JournaledCart journaled : carts.values()) {
+            // Carts rebuilt from the journal load their user with its current tier on first use.
+            if (!journaled.userLoaded || !Hibernate.isInitialized(journaled.cart.getRetailUser())
+                    || !changed.contains(journaled.cart.getRetailUser().getId())) {
+                continue;
+            }
+            journaled.cart.mutationLock().lock();
+            try {
+                journaled.cart.getRetailUser().setTier(tier);
+            } finally {
+                journaled.cart.mutationLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public Cart save(Cart cart) {
+        JournaledCart journaled = journaled(cart);
+        Lock lock = cart.mutationLock();
+        lock.lock();
+        try {
+            CartRecords.writeTotals(journaled.pending, cart);
+            // Appended while the cart is locked, so the entries of a cart are in the order of its changes.
+            long position = journal.append(journaled.pending.toByteArray());
+            journaled.pending.clear();
+            awaitDurable(journaled, position);
+        } finally {
+            lock.unlock();
+        }
+        return cart;
+    }
+
+    @Override
+    public Item saveItem(Item item) {
+        JournaledCart journaled = journaled(item.getCart());
+        Lock lock = item.getCart().mutationLock();
+        lock.lock();
+        try {
+            if (item.getId() == null) {
+                item.setId(nextItemId());
+            }
+            CartRecords.writeItem(journaled.pending, item);
+            guardRollback(journaled);
+        } finally {
+            lock.unlock();
+        }
+        return item;
+    }
+
+    @Override
+    public void deleteItem(Item item) {
+        JournaledCart journaled = journaled(item.getCart());
+        Lock lock = item.getCart().mutationLock();
+        lock.lock();
+        try {
+            CartRecords.writeItemRemoved(journaled.pending, item);
+            guardRollback(journaled);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all carts to a snapshot and deletes the journal segments before it.
+     * A cart in the middle of a change holds changes which are not journaled yet and may still be rolled back, so the
+     * state it has in the journal is written instead; its change is appended after the snapshot started and applied
+     * on top of it.
+     */
+    @Scheduled(fixedDelayString = "${cart.journal.snapshot-interval-ms:60000}",
+            initialDelayString = "${cart.journal.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        long start = System.nanoTime();
+        try (CartJournal.Snapshot snapshot = journal.beginSnapshot()) {
+            CartRecords.Writer writer = new CartRecords.Writer();
+            Set<Integer> changing = new HashSet<>();
+            for (JournaledCart journaled : carts.values()) {
+                journaled.cart.mutationLock().lock();
+                try {
+                    if (!journaled.pending.isEmpty()) {
+                        changing.add(journaled.cart.getId());
+                        continue;
+                    }
+                    CartRecords.writeCart(writer, journaled.cart);
+                } finally {
+                    journaled.cart.mutationLock().unlock();
+                }
+                snapshot.add(writer.toByteArray());
+                writer.clear();
+            }
+            if (!changing.isEmpty()) {
+                log.debug("Carts {} are being changed, writing their journaled state to the snapshot", changing);
+                for (Cart cart : rebuild(changing).values()) {
+                    CartRecords.writeCart(writer, cart);
+                    snapshot.add(writer.toByteArray());
+                    writer.clear();
+                }
+            }
+            int written = snapshot.commit();
+            log.info("Wrote {} carts to a journal snapshot in {}ms", written,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            snapshot();
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Adds a cart loaded from the database to the journal with a full record, unless another request did first.
+     */
+    private JournaledCart join(Cart cart) {
+        JournaledCart created = new JournaledCart(cart, true);
+        JournaledCart existing = carts.putIfAbsent(cart.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        cart.mutationLock().lock();
+        try {
+            CartRecords.Writer writer = new CartRecords.Writer();
+            CartRecords.writeCart(writer, cart);
+            awaitDurable(created, journal.append(writer.toByteArray()));
+        } finally {
+            cart.mutationLock().unlock();
+        }
+        log.debug("Cart with id: {} joined the journal", cart.getId());
+        return created;
+    }
+
+    /**
+     * Returns the journaled cart of a cart instance, adding the cart to the journal if it was not loaded through the store.
+     */
+    private JournaledCart journaled(Cart cart) {
+        JournaledCart journaled = carts.get(cart.getId());
+        if (journaled != null && journaled.cart == cart) {
+            return journaled;
+        }
+        carts.remove(cart.getId(), journaled);
+        return join(cart);
+    }
+
+    /**
+     * Loads the user of a cart rebuilt from the journal, which only knows the id of the user, for the discounts.
+     */
+    private void loadUser(JournaledCart journaled) {
+        journaled.cart.mutationLock().lock();
+        try {
+            if (!journaled.userLoaded) {
+                Integer userId = journaled.cart.getRetailUser().getId();
+                journaled.cart.setRetailUser(retailUserRepository.findById(userId).orElseThrow(() -> {
+                    log.error("User with id: {} of journaled cart with id: {} not found", userId, journaled.cart.getId());
+                    return new RuntimeException("User not found");
+                }));
+                journaled.userLoaded = true;
+            }
+        } finally {
+            journaled.cart.mutationLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for the entry to be durable before the current transaction commits, or straight away outside a transaction.
+     */
+    private void awaitDurable(JournaledCart journaled, long position) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            journal.awaitDurable(position);
+            return;
+        }
+        Mutation mutation = guardRollback(journaled);
+        mutation.position = Math.max(mutation.position, position);
+    }
+
+    /**
+     * Registers the cart with the current transaction. If the transaction rolls back before the changes of the cart
+     * were appended, the in-memory cart holds changes the journal does not, so it is rebuilt from the journal.
+     */
+    private Mutation guardRollback(JournaledCart journaled) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Mutation(journaled);
+        }
+        Mutation mutation = (Mutation) TransactionSynchronizationManager.getResource(journaled);
+        if (mutation == null) {
+            mutation = new Mutation(journaled);
+            TransactionSynchronizationManager.bindResource(journaled, mutation);
+            TransactionSynchronizationManager.registerSynchronization(mutation);
+        }
+        return mutation;
+    }
+
+    private void restore(JournaledCart journaled) {
+        Integer cartId = journaled.cart.getId();
+        journaled.cart.mutationLock().lock();
+        try {
+            if (journaled.pending.isEmpty()) {
+                return;
+            }
+            log.error("Change of cart with id: {} was rolled back after changing it in memory, rebuilding it from the journal", cartId);
+            journaled.pending.clear();
+            carts.remove(cartId, journaled);
+        } finally {
+            journaled.cart.mutationLock().unlock();
+        }
+        Cart cart = rebuild(Set.of(cartId)).get(cartId);
+        if (cart != null) {
+            carts.putIfAbsent(cartId, new JournaledCart(cart, false));
+        }
+    }
+
+    /**
+     * Rebuilds the carts with the given ids from the journal, as far as their changes were appended.
+     */
+    private Map<Integer, Cart> rebuild(Set<Integer> cartIds) {
+        Map<Integer, Cart> rebuilt = new HashMap<>();
+        journal.replay(entry -> CartRecords.apply(entry, rebuilt, cartIds::contains));
+        return rebuilt;
+    }
+
+    private int nextItemId() {
+        itemIdLock.lock();
+        try {
+            if (nextItemId >= itemIdLimit) {
+                // The same blocks as the pooled-lo generator of Item, see IdAllocation.
+                Long first = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR item_seq", Long.class);
+                nextItemId = first;
+                itemIdLimit = first + IdAllocation.BLOCK_SIZE;
+            }
+            return Math.toIntExact(nextItemId++);
+        } finally {
+            itemIdLock.unlock();
+        }
+    }
+
+    private static final class JournaledCart {
+        private final Cart cart;
+        /**
+         * Records of the current change of the cart, appended when the cart is saved. Guarded by the cart lock.
+         */
+        private final CartRecords.Writer pending = new CartRecords.Writer();
+        private volatile boolean userLoaded;
+
+        private JournaledCart(Cart cart, boolean userLoaded) {
+            this.cart = cart;
+            this.userLoaded = userLoaded;
+        }
+    }
+
+    private final class Mutation implements TransactionSynchronization {
+        private final JournaledCart journaled;
+        private long position;
+
+        private Mutation(JournaledCart journaled) {
+            this.journaled = journaled;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (position <= 0) {
+                return;
+            }
+            long[] deferred = deferredPosition.get();
+            if (deferred != null) {
+                // Waited for by callDurable once the cart is released.
+                deferred[0] = Math.max(deferred[0], position);
+            } else {
+                journal.awaitDurable(position);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(journaled);
+            if (!journaled.pending.isEmpty()) {
+                restore(journaled);
+            }
+        }
+    }
+}
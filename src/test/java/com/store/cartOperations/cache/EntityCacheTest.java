@@ -0,0 +1,80 @@
+package com.store.cartOperations.cache;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class EntityCacheTest {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    InventoryReservations inventoryReservations;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DisplayName("Test a product is read from the cache after its first load and the hits are published")
+    @Test
+    void testProductIsCached() {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Cached product").price(10.0)
+                .availableQuantity(10).category(Category.HOME).build());
+        entityManagerFactory.getCache().evict(Product.class);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        double hits = hits();
+
+        // When
+        productRepository.findById(product.getId());
+        productRepository.findById(product.getId());
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(hits()).isEqualTo(hits + 1);
+    }
+
+    @DisplayName("Test products whose stock is written by the reservations are evicted from the cache")
+    @Test
+    void testReconciledProductIsEvicted() {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Reserved product").price(10.0)
+                .availableQuantity(10).category(Category.HOME).build());
+        productRepository.findById(product.getId());
+        assertThat(entityManagerFactory.getCache().contains(Product.class, product.getId())).isTrue();
+
+        // When
+        inventoryReservations.reserve(product.getId(), 3);
+        inventoryReservations.reconcile();
+
+        // Then
+        assertThat(entityManagerFactory.getCache().contains(Product.class, product.getId())).isFalse();
+        assertThat(productRepository.findById(product.getId()).get().getAvailableQuantity()).isEqualTo(7);
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", Product.CACHE_REGION).tag("result", "hit")
+                .functionCounter().count();
+    }
+}
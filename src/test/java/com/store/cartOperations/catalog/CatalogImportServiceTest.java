@@ -0,0 +1,95 @@
+package com.store.cartOperations.catalog;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.repository.ProductRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"catalog.import.batch-size=100", "catalog.import.parallelism=2"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class CatalogImportServiceTest {
+
+    @Autowired
+    CatalogImportService catalogImportService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @TempDir
+    Path directory;
+
+    @DisplayName("Test CSV rows are imported in batches and invalid rows are skipped")
+    @Test
+    void testImportCsv() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("name,price,category,description,availableQuantity");
+        for (int i = 0; i < 247; i++) {
+            lines.add("Catalog product " + i + ",12.5,sports,,7");
+        }
+        lines.add("\"Catalog lamp, \"\"large\"\"\",40,HOME,\"Warm, dimmable\",3");
+        lines.add("");
+        lines.add("Catalog unknown,1.0,GADGETS,,1");
+        lines.add(",1.0,TOYS,,1");
+        Path file = Files.write(directory.resolve("catalog.csv"), lines);
+        long before = productRepository.count();
+
+        CatalogImportResult result = catalogImportService.importCatalog(file);
+
+        assertThat(result.getRead()).isEqualTo(250);
+        assertThat(result.getImported()).isEqualTo(248);
+        assertThat(result.getRejected()).isEqualTo(2);
+        assertThat(result.getFailed()).isZero();
+        assertThat(productRepository.count()).isEqualTo(before + 248);
+        Product lamp = productRepository.findAll().stream()
+                .filter(product -> product.getName().equals("Catalog lamp, \"large\""))
+                .findFirst().orElseThrow();
+        assertThat(lamp.getDescription()).isEqualTo("Warm, dimmable");
+        assertThat(lamp.getCategory()).isEqualTo(Category.HOME);
+        assertThat(lamp.getAvailableQuantity()).isEqualTo(3);
+    }
+
+    @DisplayName("Test NDJSON rows are imported with the optional fields defaulted")
+    @Test
+    void testImportNdjson() throws IOException {
+        Path file = Files.write(directory.resolve("catalog.ndjson"), List.of(
+                "{\"name\":\"Catalog kite\",\"category\":\"toys\",\"price\":15.0}",
+                "{\"name\":\"Catalog jacket\",\"category\":\"FASHION\",\"price\":80.0,\"availableQuantity\":4,\"isEmployeeDiscountEnabled\":true}",
+                "{\"name\":\"Catalog broken\",\"category\":"));
+        long before = productRepository.count();
+
+        CatalogImportResult result = catalogImportService.importCatalog(file);
+
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getRejected()).isEqualTo(1);
+        assertThat(productRepository.count()).isEqualTo(before + 2);
+        Product kite = productRepository.findAll().stream()
+                .filter(product -> product.getName().equals("Catalog kite"))
+                .findFirst().orElseThrow();
+        assertThat(kite.getAvailableQuantity()).isZero();
+        assertThat(kite.getIsEmployeeDiscountEnabled()).isFalse();
+    }
+
+    @DisplayName("Test a file of another format is refused")
+    @Test
+    void testUnsupportedFormat() throws IOException {
+        Path file = Files.write(directory.resolve("catalog.xml"), List.of("<catalog/>"));
+
+        assertThrows(RuntimeException.class, () -> catalogImportService.importCatalog(file));
+    }
+}
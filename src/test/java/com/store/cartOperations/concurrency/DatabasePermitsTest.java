@@ -0,0 +1,52 @@
+package com.store.cartOperations.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatabasePermitsTest {
+
+    @DisplayName("Test work runs without a cap when virtual threads are not enabled")
+    @Test
+    void testNoCapOnPlatformThreads() {
+        DatabasePermits databasePermits = new DatabasePermits(null, new SimpleMeterRegistry(), false, 0, 50);
+
+        assertThat(databasePermits.call(() -> databasePermits.call(() -> "done"))).isEqualTo("done");
+    }
+
+    @DisplayName("Test work waits for a permit and times out when all permits are held")
+    @Test
+    void testCapTimesOut() throws Exception {
+        DatabasePermits databasePermits = new DatabasePermits(null, new SimpleMeterRegistry(), true, 1, 50);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> holder = executor.submit(() -> databasePermits.call(() -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "held";
+            }));
+            holding.await();
+
+            assertThatThrownBy(() -> databasePermits.call(() -> "blocked"))
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Server is busy, please try again later");
+
+            release.countDown();
+            assertThat(holder.get()).isEqualTo("held");
+            assertThat(databasePermits.call(() -> "done")).isEqualTo("done");
+        }
+    }
+}
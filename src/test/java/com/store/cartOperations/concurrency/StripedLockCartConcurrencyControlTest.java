@@ -0,0 +1,79 @@
+package com.store.cartOperations.concurrency;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"cart.concurrency.mode=striped", "cart.concurrency.stripes=4"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class StripedLockCartConcurrencyControlTest {
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DisplayName("Test concurrent item additions to one cart are serialised instead of lost")
+    @Test
+    void testConcurrentAddItem() throws Exception {
+        // Given
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Striped").email("striped@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Product product = productRepository.save(Product.builder().name("Product 1").price(10.0)
+                .availableQuantity(100).category(Category.ELECTRONICS).build());
+        cartService.addItem(cart.getId(), product.getId(), 1);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Cart>> results = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            results.add(executor.submit(() -> cartService.addItem(cart.getId(), product.getId(), 1)));
+        }
+        for (Future<Cart> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        // Then
+        Cart updatedCart = cartRepository.findById(cart.getId()).get();
+        assertThat(updatedCart.getItems()).hasSize(1);
+        assertThat(updatedCart.getItems().get(0).getQuantity()).isEqualTo(41);
+        assertThat(updatedCart.getTotalCost()).isEqualTo(Money.of(410.0));
+        assertThat(updatedCart.getVersion()).isEqualTo(41);
+        assertThat(meterRegistry.get("cart.concurrency.aborts").counter().count()).isZero();
+    }
+}
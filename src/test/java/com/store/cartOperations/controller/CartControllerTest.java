@@ -2,19 +2,31 @@ package com.store.cartOperations.controller;
 
 import com.store.cartOperations.domain.Cart;
 import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.pojo.CartSummary;
 import com.store.cartOperations.service.CartService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -33,11 +45,11 @@ class CartControllerTest {
         //Given
         given(cartService.addItem(1, 1, 1)).willReturn(Cart.builder()
                 .id(1)
-                .totalCost(100.0)
+                .totalCost(Money.of(100.0))
                         .items(List.of(Item.builder()
                                 .id(1)
                                 .quantity(1)
-                                .price(100.0)
+                                .price(Money.of(100.0))
                                 .build()))
                 .build());
 
@@ -63,17 +75,70 @@ class CartControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void addItemsToCartWithValidProductsAndCart() throws Exception {
+
+        //Given
+        given(cartService.addItems(eq(1), anyList())).willReturn(Cart.builder()
+                .id(1)
+                .totalCost(Money.of(300.0))
+                .items(List.of(Item.builder()
+                                .id(1)
+                                .quantity(1)
+                                .price(Money.of(100.0))
+                                .build(),
+                        Item.builder()
+                                .id(2)
+                                .quantity(2)
+                                .price(Money.of(100.0))
+                                .build()))
+                .build());
+
+        //When //Then
+        mockMvc.perform(post("/cart/1/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\": 1, \"quantity\": 1}, {\"productId\": 2, \"quantity\": 2}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.totalCost").value(300.0))
+                .andExpect(jsonPath("$.items.size()").value(2));
+    }
+
+    @Test
+    void addItemsToCartWithInvalidQuantity() throws Exception {
+
+        //Given
+
+        //When //Then
+        mockMvc.perform(post("/cart/1/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\": 1, \"quantity\": 0}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void addItemsToCartWithInValidProduct() throws Exception {
+        // Given
+        given(cartService.addItems(eq(1), anyList())).willThrow(new RuntimeException("Product not found"));
+
+        // When // Then
+        mockMvc.perform(post("/cart/1/items")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"productId\": -1, \"quantity\": 1}]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void updateItemQuantityToCart() throws Exception {
 
         //Given
         given(cartService.updateItemQuantity(1, 1,2)).willReturn(Cart.builder()
                 .id(1)
-                .totalCost(200.0)
+                .totalCost(Money.of(200.0))
                 .items(List.of(Item.builder()
                         .id(1)
                         .quantity(2)
-                        .price(200.0)
+                        .price(Money.of(200.0))
                         .build()))
                 .build());
 
@@ -114,7 +179,7 @@ class CartControllerTest {
         //Given
         given(cartService.removeItem(1, 1)).willReturn(Cart.builder()
                 .id(1)
-                .totalCost(0.0)
+                .totalCost(Money.of(0.0))
                 .items(new ArrayList<>())
                 .build());
 
@@ -143,11 +208,11 @@ class CartControllerTest {
         // Given
         given(cartService.getCart(1)).willReturn(Cart.builder()
                 .id(1)
-                .totalCost(100.0)
+                .totalCost(Money.of(100.0))
                 .items(List.of(Item.builder()
                         .id(1)
                         .quantity(1)
-                        .price(100.0)
+                        .price(Money.of(100.0))
                         .build()))
                 .build());
 
@@ -160,6 +225,90 @@ class CartControllerTest {
                 .andExpect(jsonPath("$.items[0].id").value(1));
     }
 
+    @Test
+    void getCartReturnsCompactLines() throws Exception {
+        // Given
+        given(cartService.getCart(1)).willReturn(Cart.builder()
+                .id(1)
+                .version(3)
+                .revision(2)
+                .totalCost(Money.of(100.0))
+                .userDiscount(Money.UNKNOWN)
+                .retailUser(RetailUser.builder().id(5).name("Employee").build())
+                .items(List.of(Item.builder()
+                        .id(1)
+                        .quantity(1)
+                        .price(Money.of(100.0))
+                        .discount(Money.of(30.0))
+                        .product(Product.builder().id(7).name("Rice").description("Basmati").build())
+                        .build()))
+                .build());
+
+        // When // Then
+        mockMvc.perform(get("/cart/1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revision").value(2))
+                .andExpect(jsonPath("$.version").doesNotExist())
+                .andExpect(jsonPath("$.userId").value(5))
+                .andExpect(jsonPath("$.userDiscount").value(nullValue()))
+                .andExpect(jsonPath("$.retailUser").doesNotExist())
+                .andExpect(jsonPath("$.items[0].productId").value(7))
+                .andExpect(jsonPath("$.items[0].discount").value(30.0))
+                .andExpect(jsonPath("$.items[0].product").doesNotExist());
+    }
+
+    @Test
+    void getCartReturnsRevisionAsETag() throws Exception {
+        // Given
+        given(cartService.getCart(1)).willReturn(Cart.builder().id(1).revision(4).items(new ArrayList<>()).build());
+
+        // When // Then
+        mockMvc.perform(get("/cart/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void getCartNotModifiedWithoutLoadingCart() throws Exception {
+        // Given
+        given(cartService.getCartRevision(1)).willReturn(Optional.of(4L));
+
+        // When // Then
+        mockMvc.perform(get("/cart/1").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+        verify(cartService, never()).getCart(1);
+    }
+
+    @Test
+    void getCartModifiedSinceETag() throws Exception {
+        // Given
+        given(cartService.getCartRevision(1)).willReturn(Optional.of(5L));
+        given(cartService.getCart(1)).willReturn(Cart.builder().id(1).revision(5).items(new ArrayList<>()).build());
+
+        // When // Then
+        mockMvc.perform(get("/cart/1").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""))
+                .andExpect(jsonPath("$.revision").value(5));
+    }
+
+    @Test
+    void getCartSummary() throws Exception {
+        // Given
+        given(cartService.getCartSummary(1)).willReturn(new CartSummary(1, 2, 3, Money.of(300.0), Money.of(15.0), Money.of(90.0)));
+
+        // When // Then
+        mockMvc.perform(get("/cart/1/summary"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""))
+                .andExpect(jsonPath("$.itemCount").value(3))
+                .andExpect(jsonPath("$.totalCost").value(300.0))
+                .andExpect(jsonPath("$.billDiscount").value(15.0))
+                .andExpect(jsonPath("$.userDiscount").value(90.0));
+    }
+
     @Test
     void getCartWithInvalidCartId() throws Exception {
         // Given
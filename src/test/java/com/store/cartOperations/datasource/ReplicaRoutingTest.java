@@ -0,0 +1,91 @@
+package com.store.cartOperations.datasource;
+
+import com.store.cartOperations.service.CartService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against two in-memory databases, the replica is brought in sync with a script copy of the primary.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+                "datasource.replica.url=" + ReplicaRoutingTest.REPLICA_URL,
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "datasource.replica.check-interval-ms=3600000", "datasource.replica.max-lag-ms=5000"})
+class ReplicaRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    ReplicaMonitor replicaMonitor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @TempDir
+    Path directory;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        // The replica holds an item count of 2 for cart 1, the primary one of 99.
+        primary.update("UPDATE cart SET item_count = 2 WHERE id = 1");
+        replicaMonitor.check();
+        String script = directory.resolve("primary.sql").toString();
+        primary.execute("SCRIPT TO '" + script + "'");
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + script + "'");
+        replicaMonitor.check();
+        primary.update("UPDATE cart SET item_count = 99 WHERE id = 1");
+    }
+
+    @DisplayName("Test read-only transactions are served by the replica while it is in sync")
+    @Test
+    void testReadsGoToReplica() {
+        double replicaReads = meterRegistry.get("datasource.replica.reads").counter().count();
+
+        assertThat(replicaMonitor.isUsable()).isTrue();
+        assertThat(cartService.getCartSummary(1).getItemCount()).isEqualTo(2);
+        assertThat(meterRegistry.get("datasource.replica.reads").counter().count()).isGreaterThan(replicaReads);
+    }
+
+    @DisplayName("Test reads fall back to the primary when the replica lags behind")
+    @Test
+    void testLaggingReplicaFallsBackToPrimary() {
+        replica.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", System.currentTimeMillis() - 60_000);
+
+        replicaMonitor.check();
+
+        assertThat(replicaMonitor.isUsable()).isFalse();
+        assertThat(cartService.getCartSummary(1).getItemCount()).isEqualTo(99);
+    }
+
+    @DisplayName("Test reads fall back to the primary when the replica cannot be read")
+    @Test
+    void testFailingReplicaFallsBackToPrimary() {
+        replica.execute("DROP ALL OBJECTS");
+
+        replicaMonitor.check();
+
+        assertThat(replicaMonitor.isUsable()).isFalse();
+        assertThat(cartService.getCartSummary(1).getItemCount()).isEqualTo(99);
+        assertThat(meterRegistry.get("datasource.replica.fallbacks").counter().count()).isPositive();
+    }
+}
@@ -0,0 +1,69 @@
+package com.store.cartOperations.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartTest {
+
+    @DisplayName("Test items are found by product and item id after adding and removing")
+    @Test
+    void testFindItems() {
+        Cart cart = Cart.builder().id(1).build();
+        List<Item> items = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            Item item = item(i, 1000 + i);
+            cart.addItem(item);
+            items.add(item);
+        }
+
+        for (int i = 1; i <= 500; i += 2) {
+            cart.removeItem(items.get(i - 1));
+        }
+
+        assertThat(cart.getItems()).hasSize(250);
+        for (int i = 1; i <= 500; i++) {
+            Item expected = i % 2 == 0 ? items.get(i - 1) : null;
+            assertThat(cart.findItem(i)).isSameAs(expected);
+            assertThat(cart.findItemByProduct(1000 + i)).isSameAs(expected);
+        }
+    }
+
+    @DisplayName("Test new items are found by id once saved and indexed")
+    @Test
+    void testIndexSavedItem() {
+        Cart cart = Cart.builder().id(1).build();
+        Item item = item(null, 7);
+        cart.addItem(item);
+
+        item.setId(70);
+        assertThat(cart.findItem(70)).isNull();
+        cart.indexItem(item);
+
+        assertThat(cart.findItem(70)).isSameAs(item);
+        assertThat(cart.findItemByProduct(7)).isSameAs(item);
+    }
+
+    @DisplayName("Test index is rebuilt when the items are changed directly")
+    @Test
+    void testItemsChangedDirectly() {
+        Cart cart = Cart.builder().id(1).items(new ArrayList<>()).build();
+        cart.getItems().add(item(1, 11));
+        assertThat(cart.findItem(1)).isNotNull();
+
+        cart.getItems().add(item(2, 12));
+        assertThat(cart.findItemByProduct(12)).isNotNull();
+
+        cart.setItems(new ArrayList<>(List.of(item(3, 13))));
+        assertThat(cart.findItem(1)).isNull();
+        assertThat(cart.findItem(3)).isNotNull();
+    }
+
+    private static Item item(Integer id, int productId) {
+        return Item.builder().id(id).quantity(1).product(Product.builder().id(productId).build()).build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.store.cartOperations.expiry;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"cart.expiry.tick-ms=10", "cart.expiry.ttl-hours.none=0", "cart.expiry.ttl-hours.employee=720"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class CartExpiryTest {
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    CartExpiry cartExpiry;
+
+    @Autowired
+    InventoryReservations inventoryReservations;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DisplayName("Test carts idle for the time to live of their tier are deleted with their items")
+    @Test
+    void testIdleCartsAreDeleted() throws InterruptedException {
+        // Given
+        Cart cart = cartRepository.save(Cart.builder().retailUser(user("idle@tmail.com", false)).build());
+        Cart employeeCart = cartRepository.save(Cart.builder().retailUser(user("busy@tmail.com", true)).build());
+        Product product = productRepository.save(Product.builder().name("Expiring").price(20.0)
+                .availableQuantity(10).category(Category.SPORTS).build());
+        Integer itemId = cartService.addItem(cart.getId(), product.getId(), 2).getItems().get(0).getId();
+        cartService.addItem(employeeCart.getId(), product.getId(), 1);
+        double expiredBefore = meterRegistry.get("cart.expiry.expired").counter().count();
+
+        // When
+        // The stock is given back after the purge committed, possibly by the scheduled run.
+        for (int attempt = 0; attempt < 200
+                && (cartRepository.existsById(cart.getId()) || inventoryReservations.available(product.getId()) != 9); attempt++) {
+            Thread.sleep(10);
+            cartExpiry.expire();
+        }
+
+        // Then
+        assertThat(cartRepository.existsById(cart.getId())).isFalse();
+        assertThat(itemRepository.existsById(itemId)).isFalse();
+        assertThat(cartRepository.existsById(employeeCart.getId())).isTrue();
+        assertThat(cartRepository.findById(employeeCart.getId()).get().getLastActivityAt()).isNotNull();
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(9);
+        assertThat(meterRegistry.get("cart.expiry.expired").counter().count()).isGreaterThan(expiredBefore);
+        assertThat(meterRegistry.get("cart.expiry.purge").timer().count()).isPositive();
+    }
+
+    @DisplayName("Test the timing wheel expires timeouts at their deadline on every wheel level")
+    @Test
+    void testTimingWheelExpiresAtDeadline() {
+        // Given
+        TimingWheel wheel = new TimingWheel(1, 0);
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 300_000, 20_000_000};
+        for (int i = 0; i < deadlines.length; i++) {
+            wheel.schedule(new TimingWheel.Timeout(i, deadlines[i], 0));
+        }
+        TimingWheel.Timeout moved = new TimingWheel.Timeout(99, 100, 0);
+        wheel.schedule(moved);
+        moved.deadline = 5000;
+
+        // When
+        List<Long> expiredAt = new ArrayList<>();
+        long[] expiredTick = new long[deadlines.length];
+        long[] movedTick = new long[1];
+        for (long now = 1; now <= 20_000_001; now += now < 10_000 ? 1 : 997) {
+            long tick = now;
+            wheel.advance(now, timeout -> {
+                if (timeout.cartId == 99) {
+                    movedTick[0] = tick;
+                } else {
+                    expiredTick[timeout.cartId] = tick;
+                }
+                expiredAt.add(tick);
+            });
+        }
+
+        // Then
+        assertThat(expiredAt).hasSize(deadlines.length + 1);
+        assertThat(wheel.size()).isZero();
+        for (int i = 0; i < deadlines.length; i++) {
+            assertThat(expiredTick[i]).isGreaterThanOrEqualTo(deadlines[i]);
+            assertThat(expiredTick[i] - deadlines[i]).isLessThanOrEqualTo(deadlines[i] < 10_000 ? 1 : 997);
+        }
+        assertThat(movedTick[0]).isBetween(5000L, 5001L);
+    }
+
+    private RetailUser user(String email, boolean employee) {
+        return retailUserRepository.save(RetailUser.builder().name("Expiry").email(email)
+                .isEmployee(employee).isAffiliated(false).registeredOn(new Date()).build());
+    }
+}
@@ -0,0 +1,90 @@
+package com.store.cartOperations.expiry;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import com.store.cartOperations.store.WriteBehindCartStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"cart.store.mode=write-behind", "cart.store.flush-interval-ms=3600000",
+                "cart.expiry.tick-ms=10", "cart.expiry.ttl-hours.none=0"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class CartExpiryWriteBehindTest {
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    CartExpiry cartExpiry;
+
+    @Autowired
+    WriteBehindCartStore cartStore;
+
+    @Autowired
+    InventoryReservations inventoryReservations;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @DisplayName("Test expired carts of the write-behind store are deleted once flushed and no longer served from memory")
+    @Test
+    void testExpiredCartsAreEvicted() throws InterruptedException {
+        // Given
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Expiry").email("write-behind@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Product product = productRepository.save(Product.builder().name("Expiring").price(20.0)
+                .availableQuantity(10).category(Category.SPORTS).build());
+        cartService.addItem(cart.getId(), product.getId(), 2);
+
+        // When
+        // The change is not flushed yet, the store keeps the cart.
+        for (int attempt = 0; attempt < 10; attempt++) {
+            Thread.sleep(10);
+            cartExpiry.expire();
+        }
+        assertThat(cartRepository.existsById(cart.getId())).isTrue();
+        cartStore.flush();
+        // The stock is given back after the purge committed, possibly by the scheduled run.
+        for (int attempt = 0; attempt < 200
+                && (cartRepository.existsById(cart.getId()) || inventoryReservations.available(product.getId()) != 10); attempt++) {
+            Thread.sleep(10);
+            cartExpiry.expire();
+        }
+
+        // Then
+        assertThat(cartRepository.existsById(cart.getId())).isFalse();
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(10);
+        assertThrows(RuntimeException.class, () -> cartService.getCart(cart.getId()));
+        cartStore.flush();
+        assertThat(meterRegistry.get("cart.store.dirty.queue.depth").gauge().value()).isZero();
+        assertThat(cartRepository.existsById(cart.getId())).isFalse();
+    }
+}
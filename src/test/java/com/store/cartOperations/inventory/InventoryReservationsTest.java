@@ -0,0 +1,201 @@
+package com.store.cartOperations.inventory;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class InventoryReservationsTest {
+
+    @Autowired
+    InventoryReservations inventoryReservations;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @DisplayName("Test concurrent reservations of a hot product never hand out more than its stock")
+    @Test
+    void testConcurrentReservations() throws Exception {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Hot product").price(10.0)
+                .availableQuantity(500).category(Category.ELECTRONICS).build());
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < 16; thread++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        inventoryReservations.reserve(product.getId(), 1);
+                        reserved.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        inventoryReservations.reconcile();
+
+        // Then
+        assertThat(reserved.get()).isEqualTo(500);
+        assertThat(refused.get()).isEqualTo(1100);
+        assertThat(inventoryReservations.available(product.getId())).isZero();
+        assertThat(productRepository.findById(product.getId()).get().getAvailableQuantity()).isZero();
+    }
+
+    @DisplayName("Test concurrent carts adding a hot product share its stock and removals give it back")
+    @Test
+    void testConcurrentAddItem() throws Exception {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Hot product").price(10.0)
+                .availableQuantity(20).category(Category.SPORTS).build());
+        List<Integer> cartIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Shopper " + i)
+                    .email("shopper" + i + "@tmail.com").isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+            cartIds.add(cartRepository.save(Cart.builder().retailUser(retailUser).build()).getId());
+        }
+        AtomicInteger added = new AtomicInteger();
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (Integer cartId : cartIds) {
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    try {
+                        cartService.addItem(cartId, product.getId(), 1);
+                        added.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        // Out of stock
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Then
+        int inCarts = 0;
+        Cart fullCart = null;
+        for (Integer cartId : cartIds) {
+            Cart cart = cartRepository.findById(cartId).get();
+            for (Item item : cart.getItems()) {
+                inCarts += item.getQuantity();
+                fullCart = cart;
+            }
+        }
+        assertThat(added.get()).isEqualTo(20);
+        assertThat(inCarts).isEqualTo(20);
+        assertThat(inventoryReservations.available(product.getId())).isZero();
+
+        Item item = fullCart.getItems().get(0);
+        cartService.removeItem(fullCart.getId(), item.getId());
+        inventoryReservations.reconcile();
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(item.getQuantity());
+        assertThat(productRepository.findById(product.getId()).get().getAvailableQuantity()).isEqualTo(item.getQuantity());
+    }
+
+    @DisplayName("Test a reservation is given back when the cart transaction rolls back")
+    @Test
+    void testReservationRolledBack() {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Rolled back product").price(10.0)
+                .availableQuantity(5).category(Category.TOYS).build());
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // When
+        assertThrows(RuntimeException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            inventoryReservations.reserve(product.getId(), 3);
+            throw new RuntimeException("Cart change failed");
+        }));
+
+        // Then
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(5);
+        assertThrows(RuntimeException.class, () -> inventoryReservations.reserve(product.getId(), 6));
+    }
+
+    @DisplayName("Test reducing and removing a seeded item which reserved no stock gives no stock back")
+    @Test
+    void testSeededItemReleasesNothing() {
+        // Given
+        Product product = productRepository.save(Product.builder().name("Seeded product").price(10.0)
+                .availableQuantity(5).category(Category.TOYS).build());
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Seeded shopper")
+                .email("seeded@tmail.com").isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Integer itemId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR item_seq", Integer.class);
+        // Written like the rows of import.sql, without a reserved quantity.
+        jdbcTemplate.update("INSERT INTO item (id,name,category,price,quantity,product_id,cart_id,discount) VALUES (?,?,?,?,?,?,?,?)",
+                itemId, product.getName(), Category.TOYS.ordinal(), 10.0, 3, product.getId(), cart.getId(), 0);
+        long available = inventoryReservations.available(product.getId());
+
+        // When
+        cartService.updateItemQuantity(cart.getId(), itemId, 1);
+        cartService.removeItem(cart.getId(), itemId);
+        inventoryReservations.reconcile();
+
+        // Then
+        assertThat(available).isEqualTo(5);
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(available);
+        assertThat(productRepository.findById(product.getId()).get().getAvailableQuantity()).isEqualTo(5);
+    }
+}
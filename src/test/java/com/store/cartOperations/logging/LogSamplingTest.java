@@ -0,0 +1,55 @@
+package com.store.cartOperations.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogSamplingTest {
+
+    private final SampledLogFilter filter = new SampledLogFilter();
+    private final ch.qos.logback.classic.Logger logger = new LoggerContext().getLogger(LogSamplingTest.class);
+
+    @DisplayName("Test nested operations keep the sampling decision of the outer operation")
+    @Test
+    void testNestedOperation() {
+        Boolean outer = LogSampling.begin(1);
+        assertThat(outer).isNull();
+        assertThat(LogSampling.current()).isTrue();
+
+        Boolean nested = LogSampling.begin(Integer.MAX_VALUE);
+        assertThat(LogSampling.current()).isTrue();
+        LogSampling.end(nested);
+        assertThat(LogSampling.current()).isTrue();
+
+        LogSampling.end(outer);
+        assertThat(LogSampling.current()).isNull();
+    }
+
+    @DisplayName("Test debug lines of unsampled operations are dropped while warnings pass")
+    @Test
+    void testFilter() {
+        assertThat(decide(Level.DEBUG)).isEqualTo(FilterReply.NEUTRAL);
+
+        int unsampled = 0;
+        for (int i = 0; i < 100; i++) {
+            Boolean outer = LogSampling.begin(Integer.MAX_VALUE);
+            if (!LogSampling.current()) {
+                unsampled++;
+                assertThat(decide(Level.DEBUG)).isEqualTo(FilterReply.DENY);
+                assertThat(decide(Level.INFO)).isEqualTo(FilterReply.DENY);
+            }
+            assertThat(decide(Level.WARN)).isEqualTo(FilterReply.NEUTRAL);
+            assertThat(decide(Level.ERROR)).isEqualTo(FilterReply.NEUTRAL);
+            LogSampling.end(outer);
+        }
+        assertThat(unsampled).isGreaterThan(90);
+    }
+
+    private FilterReply decide(Level level) {
+        return filter.decide(null, logger, level, "message", null, null);
+    }
+}
@@ -0,0 +1,28 @@
+package com.store.cartOperations.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyTimersTest {
+
+    @DisplayName("Test durations are recorded per stage and operation with percentiles")
+    @Test
+    void testRecord() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LatencyTimers latencyTimers = new LatencyTimers(meterRegistry, 1, 500);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(latencyTimers.record(LatencyTimers.CART_OPERATION, "addItem", () -> "done")).isEqualTo("done");
+        }
+        latencyTimers.record(LatencyTimers.DISCOUNT_APPLY, "cart", () -> null);
+
+        Timer addItem = meterRegistry.get(LatencyTimers.CART_OPERATION).tag("operation", "addItem").timer();
+        assertThat(addItem.count()).isEqualTo(3);
+        assertThat(addItem.takeSnapshot().percentileValues()).hasSize(3);
+        assertThat(meterRegistry.get(LatencyTimers.DISCOUNT_APPLY).tag("operation", "cart").timer().count()).isEqualTo(1);
+    }
+}
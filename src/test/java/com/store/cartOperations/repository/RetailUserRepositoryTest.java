@@ -1,12 +1,17 @@
 package com.store.cartOperations.repository;
 
 import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,4 +39,51 @@ public class RetailUserRepositoryTest {
         assertThat(found.getName()).isEqualTo(retailUser.getName());
     }
 
+    @Test
+    void testFindUsersCrossingLoyaltyAndUpdateTier() {
+        // Given
+        Date cutoff = Date.from(LocalDate.now().minusYears(2).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date beforeCutoff = Date.from(LocalDate.now().minusYears(2).minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        RetailUser crossing = testEntityManager.persist(RetailUser.builder().name("Crossing").email("crossing@tmail.com")
+                .registeredOn(beforeCutoff).tier(UserTier.NONE).build());
+        testEntityManager.persist(RetailUser.builder().name("Recent").email("recent@tmail.com")
+                .registeredOn(new Date()).tier(UserTier.NONE).build());
+        testEntityManager.persist(RetailUser.builder().name("Employee").email("employee@tmail.com")
+                .isEmployee(true).registeredOn(beforeCutoff).tier(UserTier.EMPLOYEE).build());
+        testEntityManager.flush();
+
+        // When
+        List<Integer> ids = retailUserRepository.findIdsByTierRegisteredBetween(UserTier.NONE, new Date(0), cutoff, PageRequest.of(0, 10));
+        int updated = retailUserRepository.updateTier(ids, UserTier.LOYAL);
+
+        // Then
+        assertThat(ids).containsExactly(crossing.getId());
+        assertThat(updated).isEqualTo(1);
+        assertThat(retailUserRepository.countByTier(UserTier.LOYAL)).isEqualTo(1);
+        assertThat(retailUserRepository.countByTier(UserTier.NONE)).isEqualTo(1);
+    }
+
+    @Test
+    void testFindLoyalUsersRegisteredAfterCutoffAndUsersWithoutTier() {
+        // Given
+        Date cutoff = Date.from(LocalDate.now().minusYears(2).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date beforeCutoff = Date.from(LocalDate.now().minusYears(2).minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        testEntityManager.persist(RetailUser.builder().name("Loyal").email("loyal@tmail.com")
+                .registeredOn(beforeCutoff).tier(UserTier.LOYAL).build());
+        RetailUser tooRecent = testEntityManager.persist(RetailUser.builder().name("Too recent").email("too-recent@tmail.com")
+                .registeredOn(new Date()).tier(UserTier.LOYAL).build());
+        RetailUser withoutTier = testEntityManager.persist(RetailUser.builder().name("Without tier").email("without-tier@tmail.com")
+                .registeredOn(beforeCutoff).build());
+        testEntityManager.flush();
+
+        // When
+        List<Integer> demoted = retailUserRepository.findIdsByTierRegisteredFrom(UserTier.LOYAL, cutoff, PageRequest.of(0, 10));
+        List<RetailUser> missingTier = retailUserRepository.findByTierIsNull(PageRequest.of(0, 10));
+
+        // Then
+        assertThat(demoted).containsExactly(tooRecent.getId());
+        assertThat(missingTier).extracting(RetailUser::getId).containsExactly(withoutTier.getId());
+        assertThat(retailUserRepository.findIdsByTierRegisteredBetween(UserTier.NONE, new Date(0), cutoff, PageRequest.of(0, 10)))
+                .doesNotContain(withoutTier.getId());
+    }
 }
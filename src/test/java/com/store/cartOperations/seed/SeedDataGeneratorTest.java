@@ -0,0 +1,62 @@
+package com.store.cartOperations.seed;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.DiscountService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"seed.enabled=true", "seed.products=300", "seed.users=120", "seed.carts=100",
+                "seed.cart-items.max=40", "seed.batch-size=64"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class SeedDataGeneratorTest {
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    DiscountService discountService;
+
+    @DisplayName("Test seeded rows are loaded with consistent cart totals and ids continue after them")
+    @Test
+    void testSeededData() {
+        assertThat(productRepository.count()).isGreaterThanOrEqualTo(300);
+        assertThat(retailUserRepository.count()).isGreaterThanOrEqualTo(120);
+        assertThat(cartRepository.count()).isGreaterThanOrEqualTo(100);
+
+        Integer largestId = cartRepository.findAll(PageRequest.of(0, 100, Sort.by(Sort.Direction.DESC, "id"))).stream()
+                .max((a, b) -> Integer.compare(a.getItemCount(), b.getItemCount())).get().getId();
+        Cart largest = cartRepository.findById(largestId).get();
+        assertThat(largest.getItems()).hasSize(largest.getItemCount());
+        long totalCost = largest.getTotalCost();
+        long userDiscount = largest.getUserDiscount();
+        discountService.recalculate(largest);
+        assertThat(largest.getItems()).isNotEmpty();
+        assertThat(largest.getTotalCost()).isEqualTo(totalCost);
+        assertThat(largest.getUserDiscount()).isEqualTo(userDiscount);
+
+        Product product = productRepository.save(Product.builder().name("New product").price(10.0)
+                .category(Category.TOYS).build());
+        assertThat(productRepository.findById(product.getId()).get().getName()).isEqualTo("New product");
+        assertThat(productRepository.count()).isGreaterThanOrEqualTo(301);
+    }
+}
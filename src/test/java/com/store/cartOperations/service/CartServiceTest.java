@@ -1,6 +1,8 @@
 package com.store.cartOperations.service;
 
 import com.store.cartOperations.domain.*;
+import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.pojo.CartSummary;
 import com.store.cartOperations.repository.CartRepository;
 import com.store.cartOperations.repository.ItemRepository;
 import com.store.cartOperations.repository.ProductRepository;
@@ -16,6 +18,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
 @AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
@@ -66,9 +69,71 @@ class CartServiceTest {
         Assertions.assertNotNull(updatedCart);
         Assertions.assertEquals(1, updatedCart.getItems().size());
         Assertions.assertEquals(2, updatedCart.getItems().get(0).getQuantity());
-        Assertions.assertEquals(200.0, updatedCart.getTotalCost());
-        Assertions.assertEquals(10, updatedCart.getBillDiscount());
-        Assertions.assertEquals(60, updatedCart.getItems().get(0).getDiscount());
+        Assertions.assertEquals(Money.of(200.0), updatedCart.getTotalCost());
+        Assertions.assertEquals(Money.of(10.0), updatedCart.getBillDiscount());
+        Assertions.assertEquals(Money.of(60.0), updatedCart.getItems().get(0).getDiscount());
+    }
+
+    @DisplayName("Test revision is incremented by every change and looked up without the cart")
+    @Test
+    void testRevision() {
+        // Given
+        RetailUser retailUser = RetailUser.builder().id(null).name("John").email("test@tmail.com")
+                .isEmployee(true).isAffiliated(false).registeredOn(new Date()).build();
+        retailUser = retailUserRepository.save(retailUser);
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Product product = productRepository.save(Product.builder()
+                .name("Product 1")
+                .price(100.0)
+                .availableQuantity(10)
+                .category(Category.ELECTRONICS)
+                .build());
+
+        // When
+        Cart updatedCart = cartService.addItem(cart.getId(), product.getId(), 2);
+        Integer itemId = updatedCart.getItems().get(0).getId();
+        cartService.updateItemQuantity(cart.getId(), itemId, 3);
+        cartService.removeItem(cart.getId(), itemId);
+
+        // Then
+        Assertions.assertEquals(3, cartService.getCart(cart.getId()).getRevision());
+        Assertions.assertEquals(3L, cartService.getCartRevision(cart.getId()).orElseThrow());
+        Assertions.assertTrue(cartService.getCartRevision(-1).isEmpty());
+    }
+
+    @DisplayName("Test summary holds the item count and totals of the cart")
+    @Test
+    void testCartSummary() {
+        // Given
+        RetailUser retailUser = RetailUser.builder().id(null).name("John").email("test@tmail.com")
+                .isEmployee(true).isAffiliated(false).registeredOn(new Date()).build();
+        retailUser = retailUserRepository.save(retailUser);
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        List<AddItemRequest> basket = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .name("Product " + i)
+                    .price(100.0)
+                    .availableQuantity(10)
+                    .category(Category.ELECTRONICS)
+                    .build());
+            AddItemRequest request = new AddItemRequest();
+            request.setProductId(product.getId());
+            request.setQuantity(1);
+            basket.add(request);
+        }
+
+        // When
+        Cart updatedCart = cartService.addItems(cart.getId(), basket);
+        CartSummary summary = cartService.getCartSummary(cart.getId());
+
+        // Then
+        Assertions.assertEquals(3, summary.getItemCount());
+        Assertions.assertEquals(updatedCart.getRevision(), summary.getRevision());
+        Assertions.assertEquals(Money.of(300.0), summary.getTotalCost());
+        Assertions.assertEquals(Money.of(15.0), summary.getBillDiscount());
+        Assertions.assertEquals(Money.of(90.0), summary.getUserDiscount());
+        Assertions.assertThrows(RuntimeException.class, () -> cartService.getCartSummary(-1));
     }
 
     @DisplayName("Test Add Item to Cart with existing item")
@@ -90,7 +155,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -142,7 +207,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -262,6 +327,98 @@ class CartServiceTest {
     }
 
 
+    @DisplayName("Test Add Items to Cart in bulk")
+    @Test
+    void testAddItems() {
+        // Given
+        RetailUser retailUser = RetailUser.builder().id(null).name("John").email("test@tmail.com")
+                .isEmployee(true).isAffiliated(false).registeredOn(new Date()).build();
+        retailUser = retailUserRepository.save(retailUser);
+
+        Product product = Product.builder()
+                .id(null)
+                .name("Product 1")
+                .price(100.0)
+                .availableQuantity(10)
+                .category(Category.ELECTRONICS)
+                .build();
+        product = productRepository.save(product);
+        Product product1 = Product.builder()
+                .id(null)
+                .name("Product 2")
+                .price(50.0)
+                .availableQuantity(10)
+                .category(Category.GROCERY)
+                .build();
+        product1 = productRepository.save(product1);
+
+        Item item = Item.builder()
+                .name(product.getName())
+                .price(Money.of(product.getPrice()))
+                .quantity(1)
+                .product(product)
+                .category(product.getCategory())
+                .build();
+        item = itemRepository.save(item);
+        Cart cart = Cart.builder()
+                .id(null)
+                .retailUser(retailUser)
+                .totalCost(Money.of(100.0))
+                .items(new ArrayList<>())
+                .build();
+        cart.getItems().add(item);
+        item.setCart(cart);
+        cart = cartRepository.save(cart);
+
+        AddItemRequest request = new AddItemRequest();
+        request.setProductId(product.getId());
+        request.setQuantity(1);
+        AddItemRequest request1 = new AddItemRequest();
+        request1.setProductId(product1.getId());
+        request1.setQuantity(2);
+        AddItemRequest request2 = new AddItemRequest();
+        request2.setProductId(product1.getId());
+        request2.setQuantity(1);
+
+        // When
+        Cart updatedCart = cartService.addItems(cart.getId(), List.of(request, request1, request2));
+
+        // Then
+        Assertions.assertNotNull(updatedCart);
+        Assertions.assertEquals(2, updatedCart.getItems().size());
+        Assertions.assertEquals(2, updatedCart.getItems().get(0).getQuantity());
+        Assertions.assertEquals(3, updatedCart.getItems().get(1).getQuantity());
+        Assertions.assertEquals(Money.of(350.0), updatedCart.getTotalCost());
+        Assertions.assertEquals(Money.of(15.0), updatedCart.getBillDiscount());
+        Assertions.assertEquals(Money.of(60.0), updatedCart.getItems().get(0).getDiscount());
+        Assertions.assertEquals(Money.of(0.0), updatedCart.getItems().get(1).getDiscount());
+        Assertions.assertEquals(Money.of(60.0), updatedCart.getUserDiscount());
+    }
+
+    @DisplayName("Test Add Items to Cart in bulk with invalid productId")
+    @Test
+    void testAddItemsWithInvalidProduct() {
+        // Given
+        RetailUser retailUser = RetailUser.builder().id(null).name("John").email("test@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build();
+        retailUser = retailUserRepository.save(retailUser);
+
+        Cart cart = Cart.builder()
+                .id(null)
+                .retailUser(retailUser)
+                .items(new ArrayList<>())
+                .build();
+        cart = cartRepository.save(cart);
+
+        AddItemRequest request = new AddItemRequest();
+        request.setProductId(-1);
+        request.setQuantity(1);
+
+        // When
+        Cart finalCart = cart;
+        Assertions.assertThrows(RuntimeException.class, () -> cartService.addItems(finalCart.getId(), List.of(request)));
+    }
+
     @DisplayName("Test update Item quantity to Cart by decreasing quantity")
     @Test
     void testUpdateItemQuantityToCart() {
@@ -281,7 +438,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(4)
                 .product(product)
                 .category(product.getCategory())
@@ -292,7 +449,7 @@ class CartServiceTest {
                 .id(null)
                 .retailUser(retailUser)
                 .items(new ArrayList<>())
-                .totalCost(400.0)
+                .totalCost(Money.of(400.0))
                 .build();
         cart.getItems().add(item);
         item.setCart(cart);
@@ -306,9 +463,9 @@ class CartServiceTest {
         Assertions.assertNotNull(updatedCart);
         Assertions.assertEquals(1, updatedCart.getItems().size());
         Assertions.assertEquals(2, updatedCart.getItems().get(0).getQuantity());
-        Assertions.assertEquals(200.0, updatedCart.getTotalCost());
-        Assertions.assertEquals(10, updatedCart.getBillDiscount());
-        Assertions.assertEquals(60, updatedCart.getItems().get(0).getDiscount());
+        Assertions.assertEquals(Money.of(200.0), updatedCart.getTotalCost());
+        Assertions.assertEquals(Money.of(10.0), updatedCart.getBillDiscount());
+        Assertions.assertEquals(Money.of(60.0), updatedCart.getItems().get(0).getDiscount());
     }
 
     @DisplayName("Test Update Item Quantity in Cart by increasing quantity")
@@ -330,7 +487,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -342,7 +499,7 @@ class CartServiceTest {
                 .retailUser(retailUser)
                 .items(new ArrayList<>())
                 .build();
-        cart.setTotalCost(200.0);
+        cart.setTotalCost(Money.of(200.0));
         cart.getItems().add(item);
         item.setCart(cart);
         cart = cartRepository.save(cart);
@@ -354,9 +511,9 @@ class CartServiceTest {
         Assertions.assertNotNull(updatedCart);
         Assertions.assertEquals(1, updatedCart.getItems().size());
         Assertions.assertEquals(3, updatedCart.getItems().get(0).getQuantity());
-        Assertions.assertEquals(300.0, updatedCart.getTotalCost());
-        Assertions.assertEquals(15, updatedCart.getBillDiscount());
-        Assertions.assertEquals(0, updatedCart.getItems().get(0).getDiscount());
+        Assertions.assertEquals(Money.of(300.0), updatedCart.getTotalCost());
+        Assertions.assertEquals(Money.of(15.0), updatedCart.getBillDiscount());
+        Assertions.assertEquals(Money.of(0.0), updatedCart.getItems().get(0).getDiscount());
     }
 
     @DisplayName("Test Update Item Quantity in Cart with invalid itemId")
@@ -390,7 +547,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -432,7 +589,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -474,7 +631,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -516,7 +673,7 @@ class CartServiceTest {
 
         Item item = Item.builder()
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(Money.of(product.getPrice()))
                 .quantity(2)
                 .product(product)
                 .category(product.getCategory())
@@ -526,7 +683,7 @@ class CartServiceTest {
         Cart cart = Cart.builder()
                 .id(null)
                 .retailUser(retailUser)
-                .totalCost(200.0)
+                .totalCost(Money.of(200.0))
                 .items(new ArrayList<>())
                 .build();
         cart.getItems().add(item);
@@ -538,8 +695,8 @@ class CartServiceTest {
         // Then
         Assertions.assertNotNull(updatedCart);
         Assertions.assertEquals(0, updatedCart.getItems().size());
-        Assertions.assertEquals(0.0, updatedCart.getTotalCost());
-        Assertions.assertEquals(0.0, updatedCart.getBillDiscount());
+        Assertions.assertEquals(Money.of(0.0), updatedCart.getTotalCost());
+        Assertions.assertEquals(Money.of(0.0), updatedCart.getBillDiscount());
     }
 
     @DisplayName("Test Remove Item from Cart with invalid cartId")
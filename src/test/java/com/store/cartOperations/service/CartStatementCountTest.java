@@ -0,0 +1,129 @@
+package com.store.cartOperations.service;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.pojo.AddItemRequest;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class CartStatementCountTest {
+
+    private static final int LINES = 100;
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private List<Product> products;
+    private Integer cartId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Fetch").email("fetch@tmail.com")
+                .isEmployee(true).isAffiliated(false).registeredOn(new Date()).build());
+        products = productRepository.saveAll(IntStream.rangeClosed(0, LINES)
+                .mapToObj(i -> Product.builder().name("Product " + i).price(10.0).availableQuantity(100)
+                        .category(Category.ELECTRONICS).build())
+                .toList());
+        Cart cart = Cart.builder().retailUser(retailUser).items(new ArrayList<>()).build();
+        long totalCost = 0;
+        for (Product product : products.subList(0, LINES)) {
+            Item item = Item.builder().name(product.getName()).price(Money.of(product.getPrice())).quantity(1)
+                    .product(product).category(product.getCategory()).cart(cart).build();
+            cart.getItems().add(item);
+            totalCost += item.getPrice();
+        }
+        cart.setTotalCost(totalCost);
+        cart.setItemCount(LINES);
+        cartId = cartRepository.save(cart).getId();
+    }
+
+    @DisplayName("Test a cart of 100 lines is read with one query and without loading its products")
+    @Test
+    void testGetCart() {
+        statistics.clear();
+
+        Cart cart = cartService.getCart(cartId);
+
+        assertThat(cart.getItems()).hasSize(LINES);
+        assertThat(cart.getItems().get(0).getProduct().getId()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+    }
+
+    @DisplayName("Test adding to a cart of 100 lines does not load the products of the other lines")
+    @Test
+    void testAddItem() {
+        statistics.clear();
+
+        Cart cart = cartService.addItem(cartId, products.get(LINES).getId(), 1);
+
+        assertThat(cart.getItems()).hasSize(LINES + 1);
+        assertThat(statistics.getEntityFetchCount()).isZero();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        // Cart with items and user, product, item id, item insert, cart update
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(6);
+    }
+
+    @DisplayName("Test adding 100 lines at once reserves ids in blocks and batches the inserts")
+    @Test
+    void testAddItemsBatchesInserts() {
+        List<AddItemRequest> basket = productRepository.saveAll(IntStream.range(0, LINES)
+                        .mapToObj(i -> Product.builder().name("Basket product " + i).price(10.0).availableQuantity(100)
+                                .category(Category.ELECTRONICS).build())
+                        .toList())
+                .stream().map(product -> {
+                    AddItemRequest request = new AddItemRequest();
+                    request.setProductId(product.getId());
+                    request.setQuantity(1);
+                    return request;
+                }).toList();
+        statistics.clear();
+
+        Cart cart = cartService.addItems(cartId, basket);
+
+        assertThat(cart.getItems()).hasSize(2 * LINES);
+        assertThat(cart.getItemCount()).isEqualTo(2 * LINES);
+        // Cart, products, up to two id blocks, two insert batches of 50 and the cart update instead of one insert per line
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7);
+    }
+}
@@ -0,0 +1,45 @@
+package com.store.cartOperations.service;
+
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.domain.UserTier;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiscountRuleTableTest {
+
+    private final DiscountRuleTable discountRuleTable = new DiscountRuleTable(List.of("GROCERY", ""), 30.0, 10.0, 5.0, 2);
+
+    @DisplayName("Test rates are compiled per tier and category")
+    @Test
+    void testRates() {
+        assertThat(discountRuleTable.rate(UserTier.EMPLOYEE, Category.ELECTRONICS)).isEqualTo(0.3);
+        assertThat(discountRuleTable.rate(UserTier.AFFILIATED, Category.SPORTS)).isEqualTo(0.1);
+        assertThat(discountRuleTable.rate(UserTier.LOYAL, Category.HOME)).isEqualTo(0.05);
+        assertThat(discountRuleTable.rate(UserTier.NONE, Category.TOYS)).isEqualTo(0.0);
+        assertThat(discountRuleTable.rate(UserTier.EMPLOYEE, Category.GROCERY)).isEqualTo(0.0);
+    }
+
+    @DisplayName("Test tier of employee, affiliated, loyal and new users")
+    @Test
+    void testTierOf() {
+        Date longAgo = Date.from(LocalDate.now().minusYears(2).minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date recently = Date.from(LocalDate.now().minusYears(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        assertThat(discountRuleTable.tierOf(RetailUser.builder().isEmployee(true).isAffiliated(true).registeredOn(longAgo).build()))
+                .isEqualTo(UserTier.EMPLOYEE);
+        assertThat(discountRuleTable.tierOf(RetailUser.builder().isAffiliated(true).registeredOn(longAgo).build()))
+                .isEqualTo(UserTier.AFFILIATED);
+        assertThat(discountRuleTable.tierOf(RetailUser.builder().registeredOn(longAgo).build()))
+                .isEqualTo(UserTier.LOYAL);
+        assertThat(discountRuleTable.tierOf(RetailUser.builder().registeredOn(recently).build()))
+                .isEqualTo(UserTier.NONE);
+    }
+}
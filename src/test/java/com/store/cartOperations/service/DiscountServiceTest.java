@@ -96,13 +96,13 @@ public class DiscountServiceTest {
     @Test
     void testApplyDiscountToItemWithUserAsEmployeeCategoryAsGrocery() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
 
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(200.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(200.0))
                 .retailUser(users.get(0))
                 .items(List.of(item1))
                 .build();
@@ -114,22 +114,22 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(10.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(10.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
     }
 
     @DisplayName("Test apply discount method to Item with user as Employee and Category as not GROCERY")
     @Test
     void testApplyDiscountToItemWithUserAsEmployeeCategoryAsNotGrocery() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item3 = Item.builder().id(2).name("heater").price(150.0).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item3 = Item.builder().id(2).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(0.0)).build();
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(950.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(950.0))
                 .retailUser(users.get(0))
                 .items(new ArrayList<>())
                 .build();
@@ -145,26 +145,26 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(45.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(225.0);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(1).getDiscount()).isEqualTo(225.0);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(45.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(225.0));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(1).getDiscount()).isEqualTo(Money.of(225.0));
     }
 
     @DisplayName("Test apply discount method to Item with user as Affiliate")
     @Test
     void testApplyDiscountToItemWithUserAsAffiliated() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item2 = Item.builder().id(2).name("Wheat").price(110.0).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(0.0).build();
-        Item item3 = Item.builder().id(3).name("heater").price(150.0).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(0.0).build();
-        Item item4 = Item.builder().id(4).name("Ball").price(20.0).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item2 = Item.builder().id(2).name("Wheat").price(Money.of(110.0)).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(Money.of(0.0)).build();
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(0.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(0.0)).build();
         List<Item> items = List.of(item1, item2, item3, item4);
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(2750.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(2750.0))
                 .retailUser(users.get(1))
                 .items(items)
                 .build();
@@ -176,26 +176,26 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(135.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(75.0);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(75.0);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(135.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(75.0));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(Money.of(75.0));
     }
 
     @DisplayName("Test apply discount method to Item with user as loyal customer")
     @Test
     void testApplyDiscountToItemWithUserAsLoyal() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item2 = Item.builder().id(2).name("Wheat").price(110.0).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(0.0).build();
-        Item item3 = Item.builder().id(3).name("heater").price(150.0).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(0.0).build();
-        Item item4 = Item.builder().id(4).name("Ball").price(20.0).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item2 = Item.builder().id(2).name("Wheat").price(Money.of(110.0)).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(Money.of(0.0)).build();
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(0.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(0.0)).build();
         List<Item> items = List.of(item1, item2, item3, item4);
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(2750.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(2750.0))
                 .retailUser(users.get(4))
                 .items(items)
                 .build();
@@ -207,26 +207,26 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(135.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(37.5);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(37.5);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(135.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(37.5));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(Money.of(37.5));
     }
 
     @DisplayName("Test apply discount method to Item with user recently registered")
     @Test
     void testApplyDiscountToItemWithUserRecentlyRegistered() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item2 = Item.builder().id(2).name("Wheat").price(110.0).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(0.0).build();
-        Item item3 = Item.builder().id(3).name("heater").price(150.0).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(0.0).build();
-        Item item4 = Item.builder().id(4).name("Ball").price(20.0).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item2 = Item.builder().id(2).name("Wheat").price(Money.of(110.0)).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(Money.of(0.0)).build();
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(0.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(0.0)).build();
         List<Item> items = List.of(item1, item2, item3, item4);
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(2750.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(2750.0))
                 .retailUser(users.get(3))
                 .items(items)
                 .build();
@@ -237,26 +237,26 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(135.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(0.0);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(135.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(Money.of(0.0));
     }
 
     @DisplayName("Test apply discount method to Item with user registered 2 years ago and is an employee and affiliated")
     @Test
     void testApplyDiscountToItemWithUserAsEmployeeAndAffiliated() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item2 = Item.builder().id(2).name("Wheat").price(110.0).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(0.0).build();
-        Item item3 = Item.builder().id(3).name("heater").price(150.0).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(0.0).build();
-        Item item4 = Item.builder().id(4).name("Ball").price(20.0).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item2 = Item.builder().id(2).name("Wheat").price(Money.of(110.0)).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(Money.of(0.0)).build();
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(0.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(0.0)).build();
         List<Item> items = List.of(item1, item2, item3, item4);
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(2750.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(2750.0))
                 .retailUser(users.get(2))
                 .items(items)
                 .build();
@@ -268,24 +268,85 @@ public class DiscountServiceTest {
 
         //Then
         assertThat(updateCart).isNotNull();
-        assertThat(updateCart.getBillDiscount()).isEqualTo(135.0);
-        assertThat(updateCart.getUserDiscount()).isEqualTo(225.0);
-        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(1).getDiscount()).isEqualTo(0.0);
-        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(225.0);
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(135.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(225.0));
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(1).getDiscount()).isEqualTo(Money.of(0.0));
+        assertThat(updateCart.getItems().get(2).getDiscount()).isEqualTo(Money.of(225.0));
+    }
+
+    @DisplayName("Test apply discount method to Item adjusts the user discount by the change of the item discount")
+    @Test
+    void testApplyDiscountToItemAdjustsUserDiscountIncrementally() {
+        //Given
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(4).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(180.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(300.0)).build();
+        Cart cart = Cart.builder()
+                .id(1)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(480.0))
+                .totalCost(Money.of(1750.0))
+                .retailUser(users.get(0))
+                .items(new ArrayList<>())
+                .build();
+        item3.setCart(cart);
+        item4.setCart(cart);
+        cart.getItems().add(item3);
+        cart.getItems().add(item4);
+        Cart finalCart = cartRepository.save(cart);
+        Item changedItem = finalCart.getItems().get(0);
+        changedItem.setQuantity(5);
+        finalCart.setTotalCost(Money.of(1900.0));
+
+        //When
+        Cart updateCart = discountService.apply(changedItem);
+
+        //Then
+        assertThat(updateCart.getItems().get(0).getDiscount()).isEqualTo(Money.of(225.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(525.0));
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(95.0));
+    }
+
+    @DisplayName("Test apply discount method to cart recalculates missing running totals")
+    @Test
+    void testApplyDiscountToCartWithMissingTotals() {
+        //Given
+        Item item3 = Item.builder().id(3).name("heater").price(Money.of(150.0)).quantity(5).category(Category.ELECTRONICS).product(products.get(2)).discount(Money.of(225.0)).build();
+        Item item4 = Item.builder().id(4).name("Ball").price(Money.of(20.0)).quantity(50).category(Category.SPORTS).product(products.get(3)).discount(Money.of(300.0)).build();
+        Cart cart = Cart.builder()
+                .id(1)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.UNKNOWN)
+                .totalCost(Money.UNKNOWN)
+                .retailUser(users.get(0))
+                .items(new ArrayList<>())
+                .build();
+        item3.setCart(cart);
+        item4.setCart(cart);
+        cart.getItems().add(item3);
+        cart.getItems().add(item4);
+        Cart finalCart = cartRepository.save(cart);
+
+        //When
+        Cart updateCart = discountService.apply(finalCart);
+
+        //Then
+        assertThat(updateCart.getTotalCost()).isEqualTo(Money.of(1750.0));
+        assertThat(updateCart.getUserDiscount()).isEqualTo(Money.of(525.0));
+        assertThat(updateCart.getBillDiscount()).isEqualTo(Money.of(85.0));
     }
 
     @DisplayName("Test apply discount method to Item which is not present in the cart")
     @Test
     void testApplyDiscountToItemWhichIsNotPresentInTheCart() {
         //Given
-        Item item1 = Item.builder().id(1).name("Rice").price(100.0).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(0.0).build();
-        Item item2 = Item.builder().id(2).name("Wheat").price(110.0).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(0.0).build();
+        Item item1 = Item.builder().id(1).name("Rice").price(Money.of(100.0)).quantity(2).category(Category.GROCERY).product(products.get(0)).discount(Money.of(0.0)).build();
+        Item item2 = Item.builder().id(2).name("Wheat").price(Money.of(110.0)).quantity(10).category(Category.GROCERY).product(products.get(1)).discount(Money.of(0.0)).build();
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(200.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(200.0))
                 .retailUser(users.get(0))
                 .items(new ArrayList<>())
                 .build();
@@ -303,9 +364,9 @@ public class DiscountServiceTest {
         //Given
         Cart cart = Cart.builder()
                 .id(1)
-                .billDiscount(0.0)
-                .userDiscount(0.0)
-                .totalCost(-10.0)
+                .billDiscount(Money.of(0.0))
+                .userDiscount(Money.of(0.0))
+                .totalCost(Money.of(-10.0))
                 .retailUser(users.get(0))
                 .items(new ArrayList<>())
                 .build();
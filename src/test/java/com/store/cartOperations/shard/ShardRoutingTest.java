@@ -0,0 +1,125 @@
+package com.store.cartOperations.shard;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against three in-memory databases. The carts of import.sql are written to the first shard and moved to their
+ * shards at startup.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"spring.datasource.url=" + ShardRoutingTest.SHARD_0_URL,
+                "cart.shards.urls=" + ShardRoutingTest.SHARD_1_URL + "," + ShardRoutingTest.SHARD_2_URL,
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "cart.shards.reference-sync-interval-ms=3600000"})
+class ShardRoutingTest {
+
+    static final String SHARD_0_URL = "jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1_URL = "jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2_URL = "jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    CartShards cartShards;
+
+    @Autowired
+    CartRebalancer cartRebalancer;
+
+    @Autowired
+    ReferenceDataReplicator referenceDataReplicator;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    private final List<JdbcTemplate> shards = List.of(SHARD_0_URL, SHARD_1_URL, SHARD_2_URL).stream()
+            .map(url -> new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")))
+            .toList();
+
+    @DisplayName("Test carts are read from their shard after the startup rebalance")
+    @Test
+    void testCartsAreReadFromTheirShard() {
+        for (int cartId = 1; cartId <= 4; cartId++) {
+            int shard = cartShards.shardOf(cartId);
+            for (int other = 0; other < shards.size(); other++) {
+                assertThat(cartRows(other, cartId)).isEqualTo(other == shard ? 1 : 0);
+            }
+        }
+        assertThat(cartService.getCart(1).getItems()).hasSize(2);
+        assertThat(cartService.getCartSummary(1).getItemCount()).isEqualTo(2);
+    }
+
+    @DisplayName("Test misplaced carts are moved and their items are written to their shard")
+    @Test
+    void testItemsAreWrittenToTheShardOfTheCart() {
+        // Given
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Shard").email("shard@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Product product = productRepository.save(Product.builder().name("Shard Product").price(40.0)
+                .availableQuantity(10).category(Category.SPORTS).build());
+        List<Integer> cartIds = IntStream.range(0, 12)
+                .mapToObj(i -> cartRepository.save(Cart.builder().retailUser(retailUser).build()).getId())
+                .toList();
+        referenceDataReplicator.replicate();
+        long misplaced = cartIds.stream().filter(cartId -> cartShards.shardOf(cartId) != 0).count();
+
+        // When
+        long moved = cartRebalancer.rebalance();
+        Integer cartId = cartIds.stream().filter(id -> cartShards.shardOf(id) == 2).findFirst().orElseThrow();
+        Item item = cartService.addItem(cartId, product.getId(), 2).getItems().get(0);
+
+        // Then
+        assertThat(moved).isEqualTo(misplaced);
+        assertThat(cartRebalancer.rebalance()).isZero();
+        assertThat(shards.get(2).queryForObject("SELECT quantity FROM item WHERE id = ?", Integer.class, item.getId()))
+                .isEqualTo(2);
+        assertThat(shards.get(0).queryForObject("SELECT COUNT(*) FROM item WHERE cart_id = ?", Integer.class, cartId))
+                .isZero();
+        assertThat(cartService.getCart(cartId).getItems()).hasSize(1);
+    }
+
+    @DisplayName("Test adding a shard moves only the carts of the new shard")
+    @Test
+    void testAddingShardMovesCartsToNewShardOnly() {
+        int moved = 0;
+        for (int cartId = 1; cartId <= 100_000; cartId++) {
+            int before = CartShards.shardOf(cartId, 3);
+            int after = CartShards.shardOf(cartId, 4);
+            if (before != after) {
+                assertThat(after).isEqualTo(3);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(23_000, 27_000);
+    }
+
+    private int cartRows(int shard, int cartId) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM cart WHERE id = ?", Integer.class, cartId);
+    }
+}
@@ -0,0 +1,207 @@
+package com.store.cartOperations.store;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.inventory.InventoryReservations;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import com.store.cartOperations.shard.CartShards;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"cart.store.mode=write-behind", "cart.store.flush-interval-ms=3600000"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class WriteBehindCartStoreTest {
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    WriteBehindCartStore cartStore;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    CartShards cartShards;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    InventoryReservations inventoryReservations;
+
+    @DisplayName("Test cart changes are served from memory and written on flush")
+    @Test
+    void testChangesAreWrittenOnFlush() {
+        // Given
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("John").email("test@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Product product = productRepository.save(Product.builder().name("Product 1").price(100.0)
+                .availableQuantity(10).category(Category.ELECTRONICS).build());
+
+        // When
+        Cart updatedCart = cartService.addItem(cart.getId(), product.getId(), 2);
+        Integer itemId = updatedCart.getItems().get(0).getId();
+        cartService.updateItemQuantity(cart.getId(), itemId, 3);
+
+        // Then
+        assertThat(itemId).isNotNull();
+        assertThat(cartService.getCart(cart.getId()).getTotalCost()).isEqualTo(Money.of(300.0));
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(0.0));
+        assertThat(itemRepository.findById(itemId).get().getQuantity()).isEqualTo(2);
+
+        cartStore.flush();
+
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(300.0));
+        assertThat(cartRepository.findById(cart.getId()).get().getBillDiscount()).isEqualTo(Money.of(15.0));
+        assertThat(itemRepository.findById(itemId).get().getQuantity()).isEqualTo(3);
+
+        cartService.updateItemQuantity(cart.getId(), itemId, 4);
+        cartStore.flush();
+
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(400.0));
+        assertThat(itemRepository.findById(itemId).get().getQuantity()).isEqualTo(4);
+    }
+
+    @DisplayName("Test removed items are deleted on flush")
+    @Test
+    void testRemovedItemsAreDeletedOnFlush() {
+        // Given
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("Jane").email("jane@tmail.com")
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        Cart cart = cartRepository.save(Cart.builder().retailUser(retailUser).build());
+        Product product = productRepository.save(Product.builder().name("Product 2").price(50.0)
+                .availableQuantity(10).category(Category.SPORTS).build());
+        Integer itemId = cartService.addItem(cart.getId(), product.getId(), 1).getItems().get(0).getId();
+
+        // When
+        Cart updatedCart = cartService.removeItem(cart.getId(), itemId);
+
+        // Then
+        assertThat(updatedCart.getItems()).isEmpty();
+        assertThat(itemRepository.findById(itemId)).isPresent();
+
+        cartStore.flush();
+
+        assertThat(itemRepository.findById(itemId)).isEmpty();
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(0.0));
+    }
+
+    @DisplayName("Test a full dirty queue makes writers wait for the flush before locking their cart")
+    @Test
+    void testFullQueueWaitsForFlush() throws Exception {
+        // Given
+        WriteBehindCartStore store = new WriteBehindCartStore(cartRepository, itemRepository, entityManager, cartShards,
+                transactionManager, new SimpleMeterRegistry(), 1, 100, 600000, 5000);
+        Cart first = store.findById(cartRepository.save(Cart.builder().retailUser(shopper("first@tmail.com")).build()).getId()).get();
+        Cart second = store.findById(cartRepository.save(Cart.builder().retailUser(shopper("second@tmail.com")).build()).getId()).get();
+        first.setRevision(1);
+        store.save(first);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        // When
+        // A change of an already queued cart does not wait, a change of another cart waits for the flush.
+        store.awaitCapacity(first.getId());
+        Future<?> waiting = executor.submit(() -> store.awaitCapacity(second.getId()));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+        // A writer holding the lock of its cart never flushes nor waits, so it cannot block the flush of other carts.
+        second.mutationLock().lock();
+        try {
+            second.setRevision(1);
+            store.save(second);
+        } finally {
+            second.mutationLock().unlock();
+        }
+        store.flush();
+
+        // Then
+        waiting.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertThat(cartRepository.findById(first.getId()).get().getRevision()).isEqualTo(1);
+        assertThat(cartRepository.findById(second.getId()).get().getRevision()).isEqualTo(1);
+    }
+
+    @DisplayName("Test a rolled back change leaves the resident cart and the reserved quantity unchanged")
+    @Test
+    void testRolledBackChangeIsUndone() {
+        // Given
+        Cart cart = cartRepository.save(Cart.builder().retailUser(shopper("rollback@tmail.com")).build());
+        Product product = productRepository.save(Product.builder().name("Product 3").price(100.0)
+                .availableQuantity(10).category(Category.ELECTRONICS).build());
+        Product otherProduct = productRepository.save(Product.builder().name("Product 4").price(20.0)
+                .availableQuantity(10).category(Category.SPORTS).build());
+        Integer itemId = cartService.addItem(cart.getId(), product.getId(), 2).getItems().get(0).getId();
+        cartStore.flush();
+
+        // When
+        // The cart operations join the outer transaction, which fails after the items were added.
+        assertThrows(IllegalStateException.class, () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            cartService.addItem(cart.getId(), product.getId(), 3);
+            cartService.addItem(cart.getId(), otherProduct.getId(), 1);
+            throw new IllegalStateException("Failure after the items were added");
+        }));
+
+        // Then
+        Cart resident = cartService.getCart(cart.getId());
+        assertThat(resident.getItems()).hasSize(1);
+        Item item = resident.getItems().get(0);
+        assertThat(item.getQuantity()).isEqualTo(2);
+        assertThat(item.getReservedQuantity()).isEqualTo(2);
+        assertThat(resident.getTotalCost()).isEqualTo(Money.of(200.0));
+        assertThat(inventoryReservations.available(product.getId())).isEqualTo(8);
+        assertThat(inventoryReservations.available(otherProduct.getId())).isEqualTo(10);
+
+        cartStore.flush();
+
+        Item stored = itemRepository.findById(itemId).get();
+        assertThat(stored.getQuantity()).isEqualTo(2);
+        assertThat(stored.getReservedQuantity()).isEqualTo(2);
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(200.0));
+        assertThat(itemRepository.findAll()).noneMatch(line -> line.getName().equals("Product 4"));
+    }
+
+    private RetailUser shopper(String email) {
+        return retailUserRepository.save(RetailUser.builder().name("Shopper").email(email)
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+    }
+}
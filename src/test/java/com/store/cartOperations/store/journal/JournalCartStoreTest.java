@@ -0,0 +1,189 @@
+package com.store.cartOperations.store.journal;
+
+import com.store.cartOperations.domain.Cart;
+import com.store.cartOperations.domain.Category;
+import com.store.cartOperations.domain.Item;
+import com.store.cartOperations.domain.Money;
+import com.store.cartOperations.domain.Product;
+import com.store.cartOperations.domain.RetailUser;
+import com.store.cartOperations.repository.CartRepository;
+import com.store.cartOperations.repository.ItemRepository;
+import com.store.cartOperations.repository.ProductRepository;
+import com.store.cartOperations.repository.RetailUserRepository;
+import com.store.cartOperations.service.CartService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.EmbeddedDatabaseConnection;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"cart.store.mode=journal", "cart.journal.snapshot-interval-ms=3600000",
+                "cart.journal.segment-size-bytes=1048576"})
+@AutoConfigureTestDatabase(connection = EmbeddedDatabaseConnection.H2)
+class JournalCartStoreTest {
+
+    private static final Path JOURNAL_DIRECTORY = createTempDirectory();
+
+    @Autowired
+    CartService cartService;
+
+    @Autowired
+    JournalCartStore cartStore;
+
+    @Autowired
+    RetailUserRepository retailUserRepository;
+
+    @Autowired
+    CartRepository cartRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    ItemRepository itemRepository;
+
+    @DynamicPropertySource
+    static void journalProperties(DynamicPropertyRegistry registry) {
+        registry.add("cart.journal.directory", JOURNAL_DIRECTORY::toString);
+    }
+
+    @DisplayName("Test cart changes are written to the journal instead of the database")
+    @Test
+    void testChangesAreJournaled() {
+        // Given
+        Cart cart = createCart("journal@tmail.com");
+        Product product = createProduct("Product 1", 100.0);
+
+        // When
+        Cart updatedCart = cartService.addItem(cart.getId(), product.getId(), 2);
+        Integer itemId = updatedCart.getItems().get(0).getId();
+        cartService.updateItemQuantity(cart.getId(), itemId, 3);
+
+        // Then
+        assertThat(itemId).isNotNull();
+        assertThat(cartService.getCart(cart.getId()).getTotalCost()).isEqualTo(Money.of(300.0));
+        assertThat(cartService.getCartSummary(cart.getId()).getTotalCost()).isEqualTo(Money.of(300.0));
+        assertThat(cartRepository.findById(cart.getId()).get().getTotalCost()).isEqualTo(Money.of(0.0));
+        assertThat(itemRepository.findById(itemId)).isEmpty();
+    }
+
+    @DisplayName("Test carts are rebuilt from the snapshot and the entries after it")
+    @Test
+    void testCartsAreRebuiltFromJournal() throws IOException {
+        // Given
+        Cart cart = createCart("rebuilt@tmail.com");
+        Product rice = createProduct("Rice", 10.0);
+        Product ball = createProduct("Ball", 25.0);
+        Integer riceItemId = cartService.addItem(cart.getId(), rice.getId(), 4).getItems().get(0).getId();
+        cartStore.snapshot();
+        cartService.addItem(cart.getId(), ball.getId(), 2);
+        cartService.removeItem(cart.getId(), riceItemId);
+        Cart expected = cartService.getCart(cart.getId());
+
+        // When
+        Map<Integer, Cart> rebuilt = new HashMap<>();
+        Path copy = copyJournal();
+        try (CartJournal journal = new CartJournal(copy, 1048576, true, new SimpleMeterRegistry())) {
+            journal.open(entry -> CartRecords.apply(entry, rebuilt));
+        }
+
+        // Then
+        Cart rebuiltCart = rebuilt.get(cart.getId());
+        assertThat(rebuiltCart).isNotNull();
+        assertThat(rebuiltCart.getRevision()).isEqualTo(expected.getRevision());
+        assertThat(rebuiltCart.getTotalCost()).isEqualTo(Money.of(50.0));
+        assertThat(rebuiltCart.getBillDiscount()).isEqualTo(expected.getBillDiscount());
+        assertThat(rebuiltCart.getUserDiscount()).isEqualTo(expected.getUserDiscount());
+        assertThat(rebuiltCart.getItems()).hasSize(1);
+        assertThat(rebuiltCart.getItems().get(0).getProduct().getId()).isEqualTo(ball.getId());
+        assertThat(rebuiltCart.getItems().get(0).getQuantity()).isEqualTo(2);
+        assertThat(rebuiltCart.getRetailUser().getId()).isEqualTo(cart.getRetailUser().getId());
+    }
+
+    @DisplayName("Test a snapshot taken while a cart is being changed writes its journaled state and compacts the journal")
+    @Test
+    void testSnapshotWithCartBeingChanged() throws IOException {
+        // Given
+        Cart cart = createCart("changing@tmail.com");
+        Product product = createProduct("Chair", 30.0);
+        cartService.addItem(cart.getId(), product.getId(), 1);
+        Cart changing = cartStore.findById(cart.getId()).get();
+        Item item = changing.getItems().get(0);
+        item.setQuantity(5);
+        // Recorded but not appended, as in a change which has not reached the save of the cart yet.
+        cartStore.saveItem(item);
+        List<Path> segmentsBefore = journalFiles("segment-");
+
+        // When
+        cartStore.snapshot();
+
+        // Then
+        assertThat(journalFiles("snapshot-")).hasSize(1);
+        assertThat(segmentsBefore).isNotEmpty().noneMatch(Files::exists);
+        Map<Integer, Cart> rebuilt = new HashMap<>();
+        try (CartJournal journal = new CartJournal(copyJournal(), 1048576, true, new SimpleMeterRegistry())) {
+            journal.open(entry -> CartRecords.apply(entry, rebuilt));
+        }
+        assertThat(rebuilt.get(cart.getId()).getItems().get(0).getQuantity()).isEqualTo(1);
+
+        cartStore.save(changing);
+    }
+
+    private Cart createCart(String email) {
+        RetailUser retailUser = retailUserRepository.save(RetailUser.builder().name("John").email(email)
+                .isEmployee(false).isAffiliated(false).registeredOn(new Date()).build());
+        return cartRepository.save(Cart.builder().retailUser(retailUser).build());
+    }
+
+    private Product createProduct(String name, double price) {
+        return productRepository.save(Product.builder().name(name).price(price)
+                .availableQuantity(10).category(Category.SPORTS).build());
+    }
+
+    private static List<Path> journalFiles(String prefix) throws IOException {
+        try (Stream<Path> listed = Files.list(JOURNAL_DIRECTORY)) {
+            return listed.filter(file -> file.getFileName().toString().startsWith(prefix)
+                    && !file.getFileName().toString().endsWith(".tmp")).toList();
+        }
+    }
+
+    /**
+     * Copies the journal files, so the journal can be opened again while the store still appends to it.
+     */
+    private static Path copyJournal() throws IOException {
+        Path copy = Files.createTempDirectory("cart-journal-copy");
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(JOURNAL_DIRECTORY)) {
+            files = listed.filter(file -> !file.getFileName().toString().endsWith(".tmp")).toList();
+        }
+        for (Path file : files) {
+            Files.copy(file, copy.resolve(file.getFileName()));
+        }
+        return copy;
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("cart-journal");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}